@@ -0,0 +1,121 @@
+package urlshortener.app.common;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the primitive Base62 codec against the original
+ * LinkedList/HashMap implementation (kept below as LegacyIDConverter).
+ *
+ * Run with: gradle jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IDConverterBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final long[] ids = new long[SAMPLES];
+    private final String[] keys = new String[SAMPLES];
+    private final char[] buffer = new char[IDConverter.MAX_KEY_LENGTH];
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; ++i) {
+            // Keep below 2^53 so the legacy decoder is still correct
+            ids[i] = random.nextLong() & ((1L << 53) - 1);
+            keys[i] = IDConverter.createUniqueID(ids[i]);
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public String encode_primitive() {
+        return IDConverter.createUniqueID(ids[next()]);
+    }
+
+    @Benchmark
+    public int encode_primitiveIntoBuffer() {
+        return IDConverter.encode(ids[next()], buffer, 0);
+    }
+
+    @Benchmark
+    public String encode_legacy() {
+        return LegacyIDConverter.createUniqueID(ids[next()]);
+    }
+
+    @Benchmark
+    public long decode_primitive() {
+        return IDConverter.decode(keys[next()]);
+    }
+
+    @Benchmark
+    public Long decode_legacy() {
+        return LegacyIDConverter.getDictionaryKeyFromUniqueID(keys[next()]);
+    }
+
+    /**
+     * The original implementation, verbatim apart from being static-initialised
+     */
+    static final class LegacyIDConverter {
+        private static final HashMap<Character, Integer> charToIndexTable = new HashMap<>();
+        private static final List<Character> indexToCharTable = new ArrayList<>();
+
+        static {
+            for (int i = 0; i < 26; ++i) {
+                charToIndexTable.put((char) ('a' + i), i);
+                indexToCharTable.add((char) ('a' + i));
+            }
+            for (int i = 26; i < 52; ++i) {
+                charToIndexTable.put((char) ('A' + i - 26), i);
+                indexToCharTable.add((char) ('A' + i - 26));
+            }
+            for (int i = 52; i < 62; ++i) {
+                charToIndexTable.put((char) ('0' + i - 52), i);
+                indexToCharTable.add((char) ('0' + i - 52));
+            }
+        }
+
+        static String createUniqueID(Long id) {
+            List<Integer> digits = new LinkedList<>();
+            while (id > 0) {
+                int remainder = (int) (id % 62);
+                ((LinkedList<Integer>) digits).addFirst(remainder);
+                id /= 62;
+            }
+            StringBuilder uniqueURLID = new StringBuilder();
+            for (int digit : digits) {
+                uniqueURLID.append(indexToCharTable.get(digit));
+            }
+            return uniqueURLID.toString();
+        }
+
+        static Long getDictionaryKeyFromUniqueID(String uniqueID) {
+            List<Character> base62IDs = new ArrayList<>();
+            for (int i = 0; i < uniqueID.length(); ++i) {
+                base62IDs.add(uniqueID.charAt(i));
+            }
+            long id = 0L;
+            for (int i = 0, exp = base62IDs.size() - 1; i < base62IDs.size(); ++i, --exp) {
+                int base10 = charToIndexTable.get(base62IDs.get(i));
+                id += (base10 * Math.pow(62.0, exp));
+            }
+            return id;
+        }
+    }
+}
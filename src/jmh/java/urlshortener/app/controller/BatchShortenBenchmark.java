@@ -0,0 +1,101 @@
+package urlshortener.app.controller;
+
+import ai.grakn.redismock.RedisServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import urlshortener.app.URLShortenerApplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-URL cost of POST /shortener vs. POST /shortener/batch over real HTTP
+ *
+ * Boots the whole application against redis-mock and an in-memory H2. Every
+ * invocation shortens URLs that were never seen before, so each one costs a
+ * real insert. The batch benchmark counts BATCH_SIZE operations per request,
+ * so both report average time per shortened URL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchShortenBenchmark {
+    private static final int BATCH_SIZE = 1000;
+    private static final int REDIS_PORT = 6796;
+    private static final int PORT = 18082;
+
+    private final AtomicLong nextUrl = new AtomicLong();
+    private RedisServer redis;
+    private ConfigurableApplicationContext application;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = RedisServer.newRedisServer(REDIS_PORT);
+        redis.start();
+        application = SpringApplication.run(URLShortenerApplication.class,
+            "--urlshortener.id.node-id=0",
+            "--server.port=" + PORT,
+            "--urlshortener.redis.port=" + REDIS_PORT,
+            "--urlshortener.batch.max-size=" + BATCH_SIZE,
+            "--spring.datasource.url=jdbc:h2:mem:batch-bench;DB_CLOSE_DELAY=-1",
+            "--logging.level.urlshortener=WARN");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        application.close();
+        redis.stop();
+    }
+
+    private static int post(String path, String body, long clientId) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + PORT + path)
+            .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        // A distinct client IP per request keeps the rate limiter out of the way
+        connection.setRequestProperty("X-Forwarded-For",
+            "10." + (clientId >> 16 & 255) + "." + (clientId >> 8 & 255) + "." + (clientId & 255));
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // drain
+            }
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int single() throws IOException {
+        long id = nextUrl.getAndIncrement();
+        return post("/shortener", "{\"url\":\"example.com/single/" + id + "\"}", id);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int batch() throws IOException {
+        long first = nextUrl.getAndAdd(BATCH_SIZE);
+        StringBuilder body = new StringBuilder(BATCH_SIZE * 32).append('[');
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("\"example.com/batch/").append(first + i).append('"');
+        }
+        return post("/shortener/batch", body.append(']').toString(), first / BATCH_SIZE);
+    }
+}
@@ -0,0 +1,112 @@
+package urlshortener.app.controller;
+
+import ai.grakn.redismock.RedisServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import urlshortener.app.URLShortenerApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /{id} over real HTTP: Spring MVC (Tomcat) vs. the Netty redirect front end
+ *
+ * Boots the whole application once against redis-mock and an in-memory H2,
+ * creates KEY_COUNT short URLs, then has 16 client threads issue redirects
+ * over keep-alive connections without following them. Throughput gives
+ * req/s; SampleTime gives the latency distribution (read p0.99).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class RedirectFrontEndBenchmark {
+    private static final int KEY_COUNT = 1000;
+    private static final int REDIS_PORT = 6797;
+    private static final int MVC_PORT = 18080;
+    private static final int NETTY_PORT = 18081;
+
+    @Param({"mvc", "netty"})
+    public String frontEnd;
+
+    private RedisServer redis;
+    private ConfigurableApplicationContext application;
+    private URL[] redirectUrls;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = RedisServer.newRedisServer(REDIS_PORT);
+        redis.start();
+        application = SpringApplication.run(URLShortenerApplication.class,
+            "--urlshortener.id.node-id=0",
+            "--server.port=" + MVC_PORT,
+            "--urlshortener.redis.port=" + REDIS_PORT,
+            "--urlshortener.redirect-server.enabled=true",
+            "--urlshortener.redirect-server.port=" + NETTY_PORT,
+            "--spring.datasource.url=jdbc:h2:mem:redirect-bench;DB_CLOSE_DELAY=-1",
+            "--logging.level.urlshortener=WARN");
+
+        int port = "netty".equals(frontEnd) ? NETTY_PORT : MVC_PORT;
+        redirectUrls = new URL[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; ++i) {
+            String shortUrl = shorten("example.com/bench/" + i, "10.0." + (i / 256) + "." + (i % 256));
+            String key = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+            redirectUrls[i] = new URL("http://127.0.0.1:" + port + "/" + key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        application.close();
+        redis.stop();
+    }
+
+    /**
+     * Create a mapping through the MVC endpoint; a distinct client IP per call keeps the rate limiter out of the way
+     */
+    private static String shorten(String longUrl, String clientIp) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + MVC_PORT + "/shortener")
+            .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("X-Forwarded-For", clientIp);
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(("{\"url\":\"" + longUrl + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public int redirect() throws IOException {
+        URL url = redirectUrls[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setInstanceFollowRedirects(false);
+        int status = connection.getResponseCode();
+        // Drain so the keep-alive connection goes back to the JDK's pool
+        try (InputStream in = connection.getInputStream()) {
+            while (in.read() >= 0) {
+                // empty body
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,84 @@
+package urlshortener.app.repository;
+
+import ai.grakn.redismock.RedisServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import urlshortener.app.URLShortenerApplication;
+import urlshortener.app.model.URLAnalytics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows/sec when adding click deltas to URLAnalytics: findById + save per row
+ * (the old recordClickInDB path) vs. one addClicks JDBC batch
+ *
+ * Boots the application against redis-mock and an in-memory H2 and updates
+ * the same ROWS keys on every invocation, so after the first call both paths
+ * hit existing rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnalyticsUpsertBenchmark {
+    private static final int ROWS = 1000;
+    private static final int REDIS_PORT = 6800;
+
+    private RedisServer redis;
+    private ConfigurableApplicationContext application;
+    private URLAnalyticsRepository analyticsRepository;
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = RedisServer.newRedisServer(REDIS_PORT);
+        redis.start();
+        application = SpringApplication.run(URLShortenerApplication.class,
+            "--urlshortener.id.node-id=0",
+            "--server.port=0",
+            "--urlshortener.redis.port=" + REDIS_PORT,
+            "--urlshortener.warmup.enabled=false",
+            "--spring.datasource.url=jdbc:h2:mem:upsert-bench;DB_CLOSE_DELAY=-1",
+            "--logging.level.urlshortener=WARN");
+        analyticsRepository = application.getBean(URLAnalyticsRepository.class);
+        keys = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; ++i) {
+            keys.add("bench" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        application.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void jpaSave() {
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            URLAnalytics analytics = analyticsRepository.findById(key).orElse(new URLAnalytics(key));
+            analytics.setTotalClicks(analytics.getTotalClicks() + 1);
+            analytics.setLastAccessedAt(now);
+            analyticsRepository.save(analytics);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void batchUpsert() {
+        long now = System.currentTimeMillis();
+        List<ClickDelta> deltas = new ArrayList<>(ROWS);
+        for (String key : keys) {
+            deltas.add(new ClickDelta(key, 1, now));
+        }
+        analyticsRepository.addClicks(deltas);
+    }
+}
@@ -0,0 +1,75 @@
+package urlshortener.app.service;
+
+import ai.grakn.redismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import urlshortener.app.repository.RedisClient;
+import urlshortener.app.repository.URLAnalyticsRepository;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clicks/sec through recordClickAsync, one thread vs. every core
+ *
+ * The flusher runs for real against redis-mock every flushIntervalMs, so
+ * flushes race the clicks as they would in production. A single hot key is
+ * the worst case for contention; 10k keys spread the load over the map.
+ * Divide the all-cores score by the core count for clicks/sec per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClickIngestionBenchmark {
+    private static final int REDIS_PORT = 6795;
+
+    @Param({"1", "10000"})
+    public int keyCount;
+
+    @Param({"100", "1000"})
+    public long flushIntervalMs;
+
+    private RedisServer redis;
+    private AnalyticsService analyticsService;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = RedisServer.newRedisServer(REDIS_PORT);
+        redis.start();
+        URLAnalyticsRepository repository = (URLAnalyticsRepository) Proxy.newProxyInstance(
+            URLAnalyticsRepository.class.getClassLoader(), new Class<?>[] { URLAnalyticsRepository.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException("Clicks should only reach Redis: " + method.getName());
+            });
+        analyticsService = new AnalyticsService(new RedisClient(redis.getHost(), redis.getBindPort()),
+            repository, new SimpleMeterRegistry(), flushIntervalMs);
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; ++i) {
+            keys[i] = "key" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        analyticsService.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread() {
+        analyticsService.recordClickAsync(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void allCores() {
+        analyticsService.recordClickAsync(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+}
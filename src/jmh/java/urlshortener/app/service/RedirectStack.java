@@ -0,0 +1,136 @@
+package urlshortener.app.service;
+
+import ai.grakn.redismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.model.URLMapping;
+import urlshortener.app.repository.LocalURLCache;
+import urlshortener.app.repository.NegativeURLCache;
+import urlshortener.app.repository.RedisCircuitBreaker;
+import urlshortener.app.repository.RedisClient;
+import urlshortener.app.repository.URLAnalyticsRepository;
+import urlshortener.app.repository.URLMappingRepository;
+import urlshortener.app.repository.URLRepository;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Redirect path wired against local stand-ins for the benchmarks
+ *
+ * Redis is an in-process redis-mock server reached through a JedisPool that
+ * adds a simulated round-trip latency per borrow; the JPA repositories are
+ * map-backed proxies. The L1 cache is disabled so every redirect reaches Redis.
+ */
+final class RedirectStack implements AutoCloseable {
+    static final int KEY_COUNT = 10_000;
+
+    final URLConverterService converterService;
+    final AnalyticsService analyticsService;
+
+    private final RedisServer server;
+    private final RedisClient redisClient;
+    private final String[] keys = new String[KEY_COUNT];
+    private final AtomicLong cursor = new AtomicLong();
+
+    /**
+     * Every borrow stands for one network round trip (one command or one pipeline)
+     */
+    private static final class LatencyJedisPool extends JedisPool {
+        private final long latencyNanos;
+
+        private LatencyJedisPool(JedisPoolConfig config, String host, int port, long latencyNanos) {
+            super(config, host, port);
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public Jedis getResource() {
+            Jedis jedis = super.getResource();
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            return jedis;
+        }
+    }
+
+    RedirectStack(int port, int redisLatencyMicros, int redisConnections) throws IOException {
+        server = RedisServer.newRedisServer(port);
+        server.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(redisConnections);
+        poolConfig.setMaxIdle(redisConnections);
+        redisClient = new RedisClient(
+            new LatencyJedisPool(poolConfig, server.getHost(), server.getBindPort(),
+                TimeUnit.MICROSECONDS.toNanos(redisLatencyMicros)),
+            new RedisCircuitBreaker(registry), registry, 64);
+        URLRepository urlRepository = new URLRepository(redisClient, "id", "url:");
+
+        Map<String, String> mappings = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; ++i) {
+            keys[i] = IDConverter.createUniqueID(100_000L + i);
+            mappings.put(keys[i], "example.com/" + i);
+        }
+        urlRepository.saveUrls(mappings);
+
+        URLMappingRepository dbRepository = stubRepository(URLMappingRepository.class, mappings);
+        converterService = new URLConverterService(urlRepository, dbRepository,
+            new ShortKeyPool(new AtomicLong()::getAndIncrement, registry, 16, 4, 50),
+            new LocalURLCache(registry, 0, 60),
+            new NegativeURLCache(redisClient, registry, 1000, 60, 0),
+            new ShortKeyFilter(dbRepository, registry, KEY_COUNT, 0.01, 1000, 60000, 1000),
+            registry, 2000, 16);
+        analyticsService = new AnalyticsService(redisClient,
+            stubRepository(URLAnalyticsRepository.class, mappings), registry, 1000);
+    }
+
+    String nextKey() {
+        return keys[(int) (cursor.getAndIncrement() % KEY_COUNT)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stubRepository(Class<T> type, Map<String, String> mappings) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "findByShortKey":
+                    String longUrl = mappings.get((String) args[0]);
+                    return longUrl == null ? Optional.empty() : Optional.of(new URLMapping((String) args[0], longUrl, ""));
+                case "findById":
+                    return Optional.empty();
+                case "findShortKeysAfter":
+                    return Collections.emptyList();
+                case "save":
+                    return args[0];
+                case "addClicks":
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + " stub";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        converterService.close();
+        analyticsService.close();
+        redisClient.close();
+        server.stop();
+    }
+}
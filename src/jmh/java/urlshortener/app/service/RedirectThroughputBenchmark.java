@@ -0,0 +1,84 @@
+package urlshortener.app.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redirect throughput with a fixed number of request threads, blocking vs. async
+ *
+ * requestThreads stands in for the Tomcat worker pool. Each operation is one
+ * redirect: the blocking variant records the click and looks the key up on
+ * the request thread (what URLController did before), the async variant
+ * queues the click and hands the lookup to the Redis I/O pool, releasing the
+ * request thread immediately. See RedirectStack for the stand-ins;
+ * redisLatencyMicros is the simulated round trip per Redis call. Async clicks
+ * only bump a striped counter; their Redis writes happen on the flusher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedirectThroughputBenchmark {
+    private static final int REDIRECTS_PER_OP = 1000;
+
+    @Param({"8", "32"})
+    public int requestThreads;
+
+    @Param({"0", "500"})
+    public int redisLatencyMicros;
+
+    private RedirectStack stack;
+    private ExecutorService requestPool;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        stack = new RedirectStack(6799, redisLatencyMicros, 128);
+        requestPool = Executors.newFixedThreadPool(requestThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestPool.shutdownNow();
+        stack.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REDIRECTS_PER_OP)
+    public void blockingRedirect() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REDIRECTS_PER_OP);
+        for (int i = 0; i < REDIRECTS_PER_OP; ++i) {
+            String key = stack.nextKey();
+            requestPool.execute(() -> {
+                try {
+                    stack.analyticsService.recordClick(key);
+                    stack.converterService.getLongURLFromID(key);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REDIRECTS_PER_OP)
+    public void asyncRedirect() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REDIRECTS_PER_OP);
+        for (int i = 0; i < REDIRECTS_PER_OP; ++i) {
+            String key = stack.nextKey();
+            requestPool.execute(() -> {
+                stack.analyticsService.recordClickAsync(key);
+                stack.converterService.getLongURLFromIDAsync(key).whenComplete((longUrl, error) -> done.countDown());
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,71 @@
+package urlshortener.app.service;
+
+import org.openjdk.jmh.annotations.*;
+import urlshortener.app.common.VirtualThreads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking redirects at 10k concurrent requests: Tomcat-sized platform pool vs. virtual threads
+ *
+ * Each operation submits 10,000 redirects at once, as if that many
+ * connections were open, and waits for all of them. "platform" runs them on
+ * 200 threads (Tomcat's default max-threads), "virtual" gives each its own
+ * virtual thread, as urlshortener.virtual-threads.enabled does. Both use the
+ * blocking path against the RedirectStack stand-ins with a 1ms simulated
+ * Redis round trip and 256 pooled connections. The virtual variant needs
+ * JDK 21+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualThreadRedirectBenchmark {
+    private static final int CONCURRENT_REQUESTS = 10_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    private RedirectStack stack;
+    private ExecutorService requestExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        stack = new RedirectStack(6798, 1000, 256);
+        requestExecutor = "virtual".equals(executor)
+            ? VirtualThreads.newPerTaskExecutor()
+            : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+        stack.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public void blockingRedirect() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; ++i) {
+            String key = stack.nextKey();
+            requestExecutor.execute(() -> {
+                try {
+                    stack.analyticsService.recordClick(key);
+                    stack.converterService.getLongURLFromID(key);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
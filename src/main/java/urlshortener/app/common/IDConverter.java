@@ -1,95 +1,116 @@
 package urlshortener.app.common;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Base62 codec for short keys.
+ *
+ * Both directions work on primitives and flat lookup tables so the redirect
+ * and create paths never box digits or touch a collection. Decoding is exact
+ * over the whole non-negative long range and rejects anything that is not a
+ * canonical key (illegal characters, leading zero digits, overflow).
+ */
 public class IDConverter {
     public static final IDConverter INSTANCE = new IDConverter();
 
-    private IDConverter() {
-        initializeCharToIndexTable();
-        initializeIndexToCharTable();
-    }
+    // 62^11 > Long.MAX_VALUE, so no non-negative long needs more than 11 digits
+    public static final int MAX_KEY_LENGTH = 11;
 
-    private static HashMap<Character, Integer> charToIndexTable;
-    private static List<Character> indexToCharTable;
+    private static final int BASE = 62;
+    private static final char[] INDEX_TO_CHAR = new char[BASE];
+    private static final byte[] CHAR_TO_INDEX = new byte[128];
 
-    private void initializeCharToIndexTable() {
-        charToIndexTable = new HashMap<>();
-        // 0->a, 1->b, ..., 25->z, ..., 52->0, 61->9
+    static {
+        // 0->a, 1->b, ..., 25->z, 26->A, ..., 51->Z, 52->0, ..., 61->9
+        Arrays.fill(CHAR_TO_INDEX, (byte) -1);
         for (int i = 0; i < 26; ++i) {
-            char c = 'a';
-            c += i;
-            charToIndexTable.put(c, i);
+            INDEX_TO_CHAR[i] = (char) ('a' + i);
+            INDEX_TO_CHAR[i + 26] = (char) ('A' + i);
         }
-        for (int i = 26; i < 52; ++i) {
-            char c = 'A';
-            c += (i-26);
-            charToIndexTable.put(c, i);
+        for (int i = 0; i < 10; ++i) {
+            INDEX_TO_CHAR[i + 52] = (char) ('0' + i);
         }
-        for (int i = 52; i < 62; ++i) {
-            char c = '0';
-            c += (i - 52);
-            charToIndexTable.put(c, i);
+        for (int i = 0; i < BASE; ++i) {
+            CHAR_TO_INDEX[INDEX_TO_CHAR[i]] = (byte) i;
         }
     }
 
-    private void initializeIndexToCharTable() {
-        // 0->a, 1->b, ..., 25->z, ..., 52->0, 61->9
-        indexToCharTable = new ArrayList<>();
-        for (int i = 0; i < 26; ++i) {
-            char c = 'a';
-            c += i;
-            indexToCharTable.add(c);
-        }
-        for (int i = 26; i < 52; ++i) {
-            char c = 'A';
-            c += (i-26);
-            indexToCharTable.add(c);
-        }
-        for (int i = 52; i < 62; ++i) {
-            char c = '0';
-            c += (i - 52);
-            indexToCharTable.add(c);
-        }
+    private IDConverter() {
     }
 
-    public static String createUniqueID(Long id) {
-        List<Integer> base62ID = convertBase10ToBase62ID(id);
-        StringBuilder uniqueURLID = new StringBuilder();
-        for (int digit: base62ID) {
-            uniqueURLID.append(indexToCharTable.get(digit));
+    /**
+     * Number of Base62 digits needed to encode the given ID
+     */
+    public static int encodedLength(long id) {
+        checkNonNegative(id);
+        int length = 1;
+        while (id >= BASE) {
+            id /= BASE;
+            ++length;
         }
-        return uniqueURLID.toString();
+        return length;
     }
 
-    private static List<Integer> convertBase10ToBase62ID(Long id) {
-        List<Integer> digits = new LinkedList<>();
-        while(id > 0) {
-            int remainder = (int)(id % 62);
-            ((LinkedList<Integer>) digits).addFirst(remainder);
-            id /= 62;
+    /**
+     * Encode an ID into the given buffer without allocating
+     *
+     * @return number of characters written starting at offset
+     */
+    public static int encode(long id, char[] dst, int offset) {
+        int length = encodedLength(id);
+        for (int i = offset + length - 1; i >= offset; --i) {
+            dst[i] = INDEX_TO_CHAR[(int) (id % BASE)];
+            id /= BASE;
         }
-        return digits;
+        return length;
     }
 
-    public static Long getDictionaryKeyFromUniqueID(String uniqueID) {
-        List<Character> base62IDs = new ArrayList<>();
-        for (int i = 0; i < uniqueID.length(); ++i) {
-            base62IDs.add(uniqueID.charAt(i));
-        }
-        Long dictionaryKey = convertBase62ToBase10ID(base62IDs);
-        return dictionaryKey;
+    public static char[] encode(long id) {
+        char[] key = new char[encodedLength(id)];
+        encode(id, key, 0);
+        return key;
     }
 
-    private static Long convertBase62ToBase10ID(List<Character> ids) {
+    /**
+     * Decode a short key back into its ID
+     *
+     * @throws IllegalArgumentException if the key is empty, contains a character
+     *         outside the alphabet, has leading zero digits or does not fit in a long
+     */
+    public static long decode(CharSequence key) {
+        int length = key.length();
+        if (length == 0 || length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Invalid short key length " + length + ": " + key);
+        }
+        if (length > 1 && key.charAt(0) == INDEX_TO_CHAR[0]) {
+            throw new IllegalArgumentException("Short key is not canonical (leading zero digit): " + key);
+        }
         long id = 0L;
-        for (int i = 0, exp = ids.size() - 1; i < ids.size(); ++i, --exp) {
-            int base10 = charToIndexTable.get(ids.get(i));
-            id += (base10 * Math.pow(62.0, exp));
+        for (int i = 0; i < length; ++i) {
+            char c = key.charAt(i);
+            int digit = c < CHAR_TO_INDEX.length ? CHAR_TO_INDEX[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Illegal character '" + c + "' in short key: " + key);
+            }
+            if (id > (Long.MAX_VALUE - digit) / BASE) {
+                throw new IllegalArgumentException("Short key overflows a 64-bit ID: " + key);
+            }
+            id = id * BASE + digit;
         }
         return id;
     }
+
+    public static String createUniqueID(Long id) {
+        return new String(encode(id));
+    }
+
+    public static Long getDictionaryKeyFromUniqueID(String uniqueID) {
+        return decode(uniqueID);
+    }
+
+    private static void checkNonNegative(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID must be non-negative: " + id);
+        }
+    }
 }
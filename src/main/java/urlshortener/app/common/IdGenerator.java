@@ -0,0 +1,27 @@
+package urlshortener.app.common;
+
+/**
+ * Source of unique numeric IDs that are Base62-encoded into short keys.
+ *
+ * Implementations must never hand out the same ID twice, across threads
+ * and across nodes sharing the same key space.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+    /**
+     * @throws IllegalStateException if no ID can be produced right now
+     */
+    long nextId();
+
+    /**
+     * Next ID from the primary source only, never from a degraded fallback
+     *
+     * For bulk minting that should stop at the first failure instead of paying
+     * for the failure and the fallback once per ID.
+     *
+     * @throws IllegalStateException if the primary source cannot produce an ID right now
+     */
+    default long nextIdWithoutFallback() {
+        return nextId();
+    }
+}
@@ -0,0 +1,116 @@
+package urlshortener.app.common;
+
+/**
+ * How a short link's redirect may be cached downstream
+ *
+ * - permanent:    301 instead of 302
+ * - trackClicks:  every click must reach us for analytics, so the redirect
+ *                 is never cacheable (a bare 301 would be cached by browsers
+ *                 indefinitely, so it gets no-store)
+ * - maxAgeSeconds: for untracked links, how long browsers and CDNs may
+ *                 serve the redirect themselves (public, max-age=N)
+ *
+ * The default (temporary, tracked) is exactly the old behaviour. Cache
+ * tiers store a mapping as one string: the plain long URL for the default
+ * policy, "~{flags}{maxAge}~{longUrl}" otherwise ('~' can never start a
+ * validated URL).
+ */
+public final class RedirectPolicy {
+    public static final RedirectPolicy DEFAULT = new RedirectPolicy(false, null, true);
+
+    private static final char MARKER = '~';
+    private static final int DEFAULT_MAX_AGE_SECONDS = 3600;
+
+    private final boolean permanent;
+    private final Integer maxAgeSeconds;
+    private final boolean trackClicks;
+
+    private RedirectPolicy(boolean permanent, Integer maxAgeSeconds, boolean trackClicks) {
+        if (maxAgeSeconds != null && maxAgeSeconds < 0) {
+            throw new IllegalArgumentException("max-age must not be negative: " + maxAgeSeconds);
+        }
+        this.permanent = permanent;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.trackClicks = trackClicks;
+    }
+
+    /**
+     * Null arguments take the defaults (temporary, no explicit max-age, tracked)
+     */
+    public static RedirectPolicy of(Boolean permanent, Integer maxAgeSeconds, Boolean trackClicks) {
+        boolean isPermanent = permanent != null && permanent;
+        boolean isTracked = trackClicks == null || trackClicks;
+        if (!isPermanent && maxAgeSeconds == null && isTracked) {
+            return DEFAULT;
+        }
+        return new RedirectPolicy(isPermanent, maxAgeSeconds, isTracked);
+    }
+
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+    public Integer getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public boolean isTrackClicks() {
+        return trackClicks;
+    }
+
+    public int status() {
+        return permanent ? 301 : 302;
+    }
+
+    /**
+     * Cache-Control value for this policy, or null for none
+     *
+     * @param defaultCacheControl sent for tracked temporary redirects (may be empty)
+     */
+    public String cacheControl(String defaultCacheControl) {
+        if (!trackClicks) {
+            return "public, max-age=" + (maxAgeSeconds != null ? maxAgeSeconds : DEFAULT_MAX_AGE_SECONDS);
+        }
+        if (permanent) {
+            return "no-store";
+        }
+        return defaultCacheControl == null || defaultCacheControl.isEmpty() ? null : defaultCacheControl;
+    }
+
+    public RedirectResponse responseFor(String longUrl, String defaultCacheControl) {
+        return new RedirectResponse(longUrl, status(), cacheControl(defaultCacheControl));
+    }
+
+    /**
+     * Cache-tier value for a mapping with this policy
+     */
+    public String encode(String longUrl) {
+        if (this == DEFAULT) {
+            return longUrl;
+        }
+        StringBuilder value = new StringBuilder(longUrl.length() + 16)
+            .append(MARKER)
+            .append(permanent ? 'p' : 't')
+            .append(trackClicks ? 'a' : 'n');
+        if (maxAgeSeconds != null) {
+            value.append(maxAgeSeconds);
+        }
+        return value.append(MARKER).append(longUrl).toString();
+    }
+
+    public static String longUrlOf(String value) {
+        if (value.isEmpty() || value.charAt(0) != MARKER) {
+            return value;
+        }
+        return value.substring(value.indexOf(MARKER, 1) + 1);
+    }
+
+    public static RedirectPolicy policyOf(String value) {
+        if (value.isEmpty() || value.charAt(0) != MARKER) {
+            return DEFAULT;
+        }
+        int end = value.indexOf(MARKER, 1);
+        Integer maxAge = end > 3 ? Integer.valueOf(value.substring(3, end)) : null;
+        return of(value.charAt(1) == 'p', maxAge, value.charAt(2) == 'a');
+    }
+}
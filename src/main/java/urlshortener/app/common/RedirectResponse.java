@@ -0,0 +1,93 @@
+package urlshortener.app.common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A redirect answer for one mapping, built once and reused for every hit
+ *
+ * Holds the Location value and the complete HTTP/1.1 response (status line,
+ * Location, Cache-Control, Content-Length) as bytes, so serving a cached
+ * redirect is a lookup plus a write: no string concatenation or header
+ * formatting per request. Instances are immutable; a changed mapping gets a
+ * new instance.
+ */
+public final class RedirectResponse {
+    private final String longUrl;
+    private final int status;
+    private final String location;
+    private final String cacheControl;
+    private final byte[] httpResponse;
+
+    public RedirectResponse(String longUrl, int status, String cacheControl) {
+        this.longUrl = longUrl;
+        this.status = status;
+        this.location = "http://" + longUrl;
+        this.cacheControl = cacheControl == null || cacheControl.isEmpty() ? null : cacheControl;
+        this.httpResponse = format(status, location, this.cacheControl);
+    }
+
+    public static RedirectResponse found(String longUrl, String cacheControl) {
+        return new RedirectResponse(longUrl, 302, cacheControl);
+    }
+
+    private static byte[] format(int status, String location, String cacheControl) {
+        StringBuilder response = new StringBuilder(64 + location.length())
+            .append("HTTP/1.1 ").append(status).append(' ').append(reasonPhrase(status)).append("\r\n")
+            .append("Location: ").append(location).append("\r\n");
+        if (cacheControl != null) {
+            response.append("Cache-Control: ").append(cacheControl).append("\r\n");
+        }
+        response.append("Content-Length: 0\r\n\r\n");
+        return response.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 301:
+                return "Moved Permanently";
+            case 302:
+                return "Found";
+            case 303:
+                return "See Other";
+            case 307:
+                return "Temporary Redirect";
+            case 308:
+                return "Permanent Redirect";
+            default:
+                throw new IllegalArgumentException("Not a redirect status: " + status);
+        }
+    }
+
+    public String getLongUrl() {
+        return longUrl;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Cache-Control header value, or null to send none
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * The full HTTP/1.1 response; shared, must not be modified
+     */
+    public byte[] getHttpResponse() {
+        return httpResponse;
+    }
+
+    /**
+     * Approximate heap held by the precomputed parts (response bytes and Location chars)
+     */
+    public int retainedBytes() {
+        return httpResponse.length + 2 * location.length();
+    }
+}
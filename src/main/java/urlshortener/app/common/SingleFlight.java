@@ -0,0 +1,119 @@
+package urlshortener.app.common;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-key in-flight deduplication of expensive loads
+ *
+ * The first caller for a key runs the loader on its own thread; callers that
+ * arrive while that load is still running wait (for a bounded time) on its
+ * result instead of starting their own. Nothing is cached once the load has
+ * finished, so the next miss after that triggers a fresh load.
+ *
+ * execute and executeAsync share the same in-flight table, so blocking and
+ * non-blocking callers for one key coalesce with each other.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Run the loader for this key, or join the load already in flight for it
+     *
+     * @throws TimeoutException if the in-flight load did not finish within timeoutMs
+     * @throws Exception whatever the loader threw, for the leader and every waiter
+     */
+    public V execute(K key, Callable<V> loader, long timeoutMs) throws Exception {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.increment();
+            return await(key, existing, timeoutMs);
+        }
+        loads.increment();
+        try {
+            V value = loader.call();
+            own.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Non-blocking variant: start the loader's future for this key, or return the one already in flight
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        loads.increment();
+        CompletableFuture<V> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException | Error e) {
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+        load.whenComplete((value, error) -> {
+            inFlight.remove(key, own);
+            if (error == null) {
+                own.complete(value);
+            } else {
+                own.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            }
+        });
+        return own;
+    }
+
+    private V await(K key, CompletableFuture<V> load, long timeoutMs) throws Exception {
+        try {
+            return load.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new TimeoutException("Timed out after " + timeoutMs + "ms waiting for in-flight load of " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+}
@@ -0,0 +1,62 @@
+package urlshortener.app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import urlshortener.app.common.IdGenerator;
+import urlshortener.app.common.SnowflakeIdGenerator;
+import urlshortener.app.repository.URLRepository;
+
+/**
+ * Selects how new short URL IDs are minted
+ *
+ * - redis (default): IDs leased in blocks from the shared Redis counter,
+ *   falling back to node-local Snowflake IDs while Redis is unreachable
+ * - snowflake: node-local IDs only, zero network calls per create
+ *
+ * Both modes can mint Snowflake IDs, so every node must be given a distinct
+ * urlshortener.id.node-id. There is no default: a shared default would make
+ * every node mint the same IDs, so startup fails if it is not set.
+ */
+@Configuration
+public class IdGeneratorConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdGeneratorConfig.class);
+
+    @Bean
+    public IdGenerator idGenerator(URLRepository urlRepository,
+                                   @Value("${urlshortener.id.generator:redis}") String strategy,
+                                   @Value("${urlshortener.id.node-id:-1}") int nodeId) {
+        if (nodeId < 0) {
+            throw new IllegalStateException("urlshortener.id.node-id is not set; give every node a distinct id (0-"
+                + SnowflakeIdGenerator.MAX_NODE_ID + ")");
+        }
+        SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(nodeId);
+        if ("snowflake".equalsIgnoreCase(strategy)) {
+            LOGGER.info("Using node-local Snowflake IDs for node {}", nodeId);
+            return snowflake;
+        }
+        LOGGER.info("Using Redis-leased IDs with Snowflake fallback for node {}", nodeId);
+        return new IdGenerator() {
+            @Override
+            public long nextId() {
+                Long id = urlRepository.incrementID();
+                if (id == null) {
+                    LOGGER.warn("[DEGRADED MODE] Redis down, minting node-local ID");
+                    return snowflake.nextId();
+                }
+                return id;
+            }
+
+            @Override
+            public long nextIdWithoutFallback() {
+                Long id = urlRepository.incrementID();
+                if (id == null) {
+                    throw new IllegalStateException("Redis ID lease unavailable");
+                }
+                return id;
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package urlshortener.app.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import urlshortener.app.common.VirtualThreads;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Optional virtual-thread request execution (urlshortener.virtual-threads.enabled)
+ *
+ * Replaces Tomcat's bounded worker pool with one virtual thread per request,
+ * so the number of requests blocked on Redis or H2 is no longer capped by
+ * server.tomcat.max-threads; server.tomcat.max-connections becomes the limit.
+ * On a JDK without virtual threads the setting is ignored with a warning.
+ *
+ * Pinning audit of the request path:
+ * - Redis: every call borrows from the JedisPool (commons-pool2, lock based);
+ *   no shared Jedis and no synchronized blocks remain in our code
+ * - ShortKeyFilter loads use a ReentrantLock, not synchronized
+ * - H2 (file mode) does its disk I/O inside synchronized(session), so a
+ *   query pins its carrier thread on JDK 21-23. Only threads holding one of
+ *   Hikari's connections can be inside H2, so at most maximum-pool-size
+ *   carriers are pinned at once; keep it below the core count, or run on
+ *   JDK 24+ where monitors no longer pin (JEP 491)
+ */
+@Configuration
+@ConditionalOnProperty(name = "urlshortener.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadCustomizer() {
+        return factory -> {
+            if (!VirtualThreads.isSupported()) {
+                LOGGER.warn("Virtual threads requested but not available on JDK {}, keeping platform worker pool",
+                    System.getProperty("java.version"));
+                return;
+            }
+            ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+            factory.addConnectorCustomizers(connector -> {
+                ProtocolHandler handler = connector.getProtocolHandler();
+                if (handler instanceof AbstractProtocol) {
+                    ((AbstractProtocol<?>) handler).setExecutor(executor);
+                    LOGGER.info("Tomcat requests run on virtual threads");
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package urlshortener.app.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import urlshortener.app.service.CacheWarmer;
+
+/**
+ * Reports OUT_OF_SERVICE until cache warm-up is done, so /actuator/health can gate traffic
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+    private final CacheWarmer cacheWarmer;
+
+    @Autowired
+    public WarmupHealthIndicator(CacheWarmer cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = cacheWarmer.isReady() ? Health.up() : Health.outOfService();
+        return builder.withDetail("warmedMappings", cacheWarmer.getWarmedCount()).build();
+    }
+}
@@ -0,0 +1,280 @@
+package urlshortener.app.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.common.RedirectResponse;
+import urlshortener.app.common.URLValidator;
+import urlshortener.app.exception.RateLimitExceededException;
+import urlshortener.app.service.AnalyticsService;
+import urlshortener.app.service.RateLimiterService;
+import urlshortener.app.service.URLConverterService;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk endpoints for ingestion jobs
+ *
+ * Both sides are streamed: the JSON array in the request is parsed element
+ * by element, processed in chunks, and each chunk's results are written and
+ * flushed before the next chunk is read. Memory stays bounded by the chunk
+ * size (plus the short URLs issued so far, for deduplication).
+ *
+ * A shorten batch counts as one request against the creation rate limit;
+ * like resolves (which are not rate limited, same as redirects) its size is
+ * capped by urlshortener.batch.max-size instead.
+ *
+ * Elements are bound with Spring's ObjectMapper, like a POST /shortener body.
+ * An element of the wrong type is answered with its own error; only a body
+ * that is not an array (400) or not JSON fails the whole batch.
+ */
+@RestController
+public class BatchController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchController.class);
+    private static final String BATCH_SUFFIX = "/batch";
+
+    private final URLConverterService urlConverterService;
+    private final RateLimiterService rateLimiterService;
+    private final AnalyticsService analyticsService;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory json;
+    private final int maxBatchSize;
+    private final int chunkSize;
+
+    public BatchController(URLConverterService urlConverterService,
+                           RateLimiterService rateLimiterService,
+                           AnalyticsService analyticsService,
+                           ObjectMapper objectMapper,
+                           @Value("${urlshortener.batch.max-size:10000}") int maxBatchSize,
+                           @Value("${urlshortener.batch.chunk-size:1000}") int chunkSize) {
+        this.urlConverterService = urlConverterService;
+        this.rateLimiterService = rateLimiterService;
+        this.analyticsService = analyticsService;
+        this.objectMapper = objectMapper;
+        this.json = objectMapper.getFactory();
+        this.maxBatchSize = maxBatchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Shorten a JSON array of URLs
+     *
+     * Elements are either URL strings or objects shaped like the POST /shortener
+     * body. The response is an array in the same order of {"url", "shortUrl"} or
+     * {"url", "error"}; one invalid element never fails the rest of the batch.
+     */
+    @RequestMapping(value = "/shortener/batch", method = RequestMethod.POST, consumes = {"application/json"})
+    public void shortenBatch(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String clientIp = URLController.getClientIp(request);
+        if (!rateLimiterService.isAllowed(clientIp)) {
+            LOGGER.warn("Rate limit exceeded for IP: {}", clientIp);
+            throw new RateLimitExceededException(
+                rateLimiterService.getMaxRequests(),
+                rateLimiterService.getWindowSize(),
+                rateLimiterService.getResetTime(clientIp)
+            );
+        }
+        
+        // Short URLs are formatted exactly as for POST /shortener
+        String requestURL = request.getRequestURL().toString();
+        String localURL = requestURL.substring(0, requestURL.length() - BATCH_SUFFIX.length());
+        
+        try (JsonParser parser = json.createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of URLs");
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            try (JsonGenerator out = json.createGenerator(response.getOutputStream())) {
+                out.writeStartArray();
+                Map<String, String> shortened = new HashMap<>();
+                List<ShortenRequest> chunk = new ArrayList<>(chunkSize);
+                // Per element of the chunk: why it could not be bound, or null
+                List<String> bindErrors = new ArrayList<>(chunkSize);
+                int count = 0;
+                for (JsonToken token; (token = parser.nextToken()) != JsonToken.END_ARRAY; ) {
+                    ShortenRequest element;
+                    String bindError = null;
+                    if (token == JsonToken.VALUE_STRING) {
+                        element = new ShortenRequest(parser.getText());
+                    } else if (token == JsonToken.START_OBJECT) {
+                        // Read whole first, so a binding error leaves the parser at the next element
+                        ObjectNode node = parser.readValueAsTree();
+                        try {
+                            element = objectMapper.treeToValue(node, ShortenRequest.class);
+                        } catch (JsonMappingException e) {
+                            element = new ShortenRequest(node.path("url").textValue());
+                            bindError = "Invalid element: " + e.getOriginalMessage();
+                        }
+                    } else {
+                        parser.skipChildren();
+                        element = new ShortenRequest(null);
+                        bindError = "Expected a URL string or object";
+                    }
+                    if (++count > maxBatchSize) {
+                        // Past the cap: elements are only parsed and reported, never processed
+                        writeError(out, element.getUrl(), "Batch limit of " + maxBatchSize + " URLs exceeded");
+                        continue;
+                    }
+                    chunk.add(element);
+                    bindErrors.add(bindError);
+                    if (chunk.size() == chunkSize) {
+                        shortenChunk(out, localURL, chunk, bindErrors, shortened);
+                        chunk.clear();
+                        bindErrors.clear();
+                    }
+                }
+                shortenChunk(out, localURL, chunk, bindErrors, shortened);
+                out.writeEndArray();
+                LOGGER.info("Shortened batch of {} URLs ({} distinct) for IP: {}", count, shortened.size(), clientIp);
+            }
+        }
+    }
+
+    private void shortenChunk(JsonGenerator out, String localURL, List<ShortenRequest> chunk,
+                              List<String> bindErrors, Map<String, String> shortened) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        String[] errors = bindErrors.toArray(new String[chunk.size()]);
+        Map<String, RedirectPolicy> pending = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); ++i) {
+            if (errors[i] != null) {
+                continue;
+            }
+            ShortenRequest element = chunk.get(i);
+            String longUrl = element.getUrl();
+            if (longUrl == null || !URLValidator.INSTANCE.validateURL(longUrl)) {
+                errors[i] = "Please enter a valid URL";
+                continue;
+            }
+            RedirectPolicy policy;
+            try {
+                policy = RedirectPolicy.of(element.getPermanent(), element.getMaxAgeSeconds(), element.getTrackClicks());
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+                continue;
+            }
+            // Duplicates within the batch (and of earlier chunks) are shortened once
+            if (!shortened.containsKey(longUrl)) {
+                pending.putIfAbsent(longUrl, policy);
+            }
+        }
+        if (!pending.isEmpty()) {
+            Map<String, String> shortUrls = urlConverterService.shortenBatch(localURL, pending);
+            shortened.putAll(shortUrls);
+            
+            // Same as the single endpoint, in one JDBC batch; keys shortened before keep their analytics
+            List<String> shortKeys = new ArrayList<>(shortUrls.size());
+            for (String shortUrl : shortUrls.values()) {
+                shortKeys.add(shortUrl.substring(shortUrl.lastIndexOf('/') + 1));
+            }
+            analyticsService.initializeAnalytics(shortKeys);
+        }
+        for (int i = 0; i < chunk.size(); ++i) {
+            String longUrl = chunk.get(i).getUrl();
+            if (errors[i] != null) {
+                writeError(out, longUrl, errors[i]);
+            } else {
+                out.writeStartObject();
+                out.writeStringField("url", longUrl);
+                out.writeStringField("shortUrl", shortened.get(longUrl));
+                out.writeEndObject();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Resolve a JSON array of short keys to their destinations, without recording clicks
+     *
+     * The response is an array in the same order of {"shortKey", "url", "status"}
+     * or {"shortKey", "error"}; url is the redirect's Location.
+     */
+    @RequestMapping(value = "/resolve/batch", method = RequestMethod.POST, consumes = {"application/json"})
+    public void resolveBatch(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        try (JsonParser parser = json.createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of short keys");
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            try (JsonGenerator out = json.createGenerator(response.getOutputStream())) {
+                out.writeStartArray();
+                List<String> chunk = new ArrayList<>(chunkSize);
+                int count = 0;
+                for (JsonToken token; (token = parser.nextToken()) != JsonToken.END_ARRAY; ) {
+                    String shortKey = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    if (shortKey == null) {
+                        parser.skipChildren();
+                        writeKeyError(out, null, "Expected a short key string");
+                        continue;
+                    }
+                    if (++count > maxBatchSize) {
+                        writeKeyError(out, shortKey, "Batch limit of " + maxBatchSize + " keys exceeded");
+                        continue;
+                    }
+                    chunk.add(shortKey);
+                    if (chunk.size() == chunkSize) {
+                        resolveChunk(out, chunk);
+                        chunk.clear();
+                    }
+                }
+                resolveChunk(out, chunk);
+                out.writeEndArray();
+                LOGGER.info("Resolved batch of {} short keys", count);
+            }
+        }
+    }
+
+    private void resolveChunk(JsonGenerator out, List<String> chunk) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<String, RedirectResponse> resolved = urlConverterService.resolveBatch(chunk);
+        for (String shortKey : chunk) {
+            RedirectResponse redirect = resolved.get(shortKey);
+            if (redirect == null) {
+                writeKeyError(out, shortKey, "Not Found");
+            } else {
+                out.writeStartObject();
+                out.writeStringField("shortKey", shortKey);
+                out.writeStringField("url", redirect.getLocation());
+                out.writeNumberField("status", redirect.getStatus());
+                out.writeEndObject();
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeKeyError(JsonGenerator out, String shortKey, String error) throws IOException {
+        out.writeStartObject();
+        out.writeStringField("shortKey", shortKey);
+        out.writeStringField("error", error);
+        out.writeEndObject();
+    }
+
+    private static void writeError(JsonGenerator out, String longUrl, String error) throws IOException {
+        out.writeStartObject();
+        out.writeStringField("url", longUrl);
+        out.writeStringField("error", error);
+        out.writeEndObject();
+    }
+}
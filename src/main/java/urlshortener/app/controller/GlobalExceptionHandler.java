@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import urlshortener.app.exception.RateLimitExceededException;
+import urlshortener.app.exception.ShortKeyNotFoundException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -38,6 +39,35 @@ public class GlobalExceptionHandler {
             .body(response);
     }
     
+    @ExceptionHandler(ShortKeyNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleShortKeyNotFound(ShortKeyNotFoundException ex) {
+        LOGGER.info("Short key not found: {}", ex.getShortKey());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Not Found");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity
+            .status(HttpStatus.NOT_FOUND)
+            .body(response);
+    }
+    
+    /**
+     * Invalid request input (e.g. a negative maxAgeSeconds): the message says what is wrong
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
+        LOGGER.info("Bad request: {}", ex.getMessage());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Bad Request");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(response);
+    }
+    
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
         LOGGER.error("Unexpected error: {}", ex.getMessage(), ex);
@@ -0,0 +1,190 @@
+package urlshortener.app.controller;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.CharsetUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.exception.ShortKeyNotFoundException;
+import urlshortener.app.service.AnalyticsService;
+import urlshortener.app.service.URLConverterService;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Per-connection handler of the Netty redirect front end
+ *
+ * GET /{shortKey} is answered here by writing the mapping's precomputed
+ * RedirectResponse bytes (bypassing the HTTP encoder); every other request is forwarded to the
+ * Spring application and its response relayed back. Responses are written
+ * in request order even though lookups complete on other threads.
+ */
+class NettyRedirectHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyRedirectHandler.class);
+    private static final int MAX_CONTENT_LENGTH = 1 << 20;
+
+    private static final ByteBuf NOT_FOUND = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(
+        "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n", CharsetUtil.US_ASCII));
+    private static final ByteBuf SERVER_ERROR = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(
+        "HTTP/1.1 500 Internal Server Error\r\nContent-Length: 0\r\n\r\n", CharsetUtil.US_ASCII));
+    private static final ByteBuf BAD_GATEWAY = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(
+        "HTTP/1.1 502 Bad Gateway\r\nContent-Length: 0\r\n\r\n", CharsetUtil.US_ASCII));
+
+    private final URLConverterService urlConverterService;
+    private final AnalyticsService analyticsService;
+    private final String fallbackHost;
+    private final int fallbackPort;
+    // Only touched on this channel's event loop
+    private CompletableFuture<?> lastResponse = CompletableFuture.completedFuture(null);
+
+    NettyRedirectHandler(URLConverterService urlConverterService, AnalyticsService analyticsService,
+                         String fallbackHost, int fallbackPort) {
+        this.urlConverterService = urlConverterService;
+        this.analyticsService = analyticsService;
+        this.fallbackHost = fallbackHost;
+        this.fallbackPort = fallbackPort;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        String shortKey = redirectKey(request);
+        CompletableFuture<Object> response;
+        if (shortKey != null) {
+            response = urlConverterService.getRedirectAsync(shortKey)
+                .handle((redirect, error) -> {
+                    if (error != null) {
+                        return errorResponse(shortKey, error);
+                    }
+                    // Counted only once resolved, so 404s leave no analytics behind
+                    analyticsService.recordClickAsync(shortKey);
+                    return Unpooled.wrappedBuffer(redirect.getHttpResponse());
+                });
+        } else {
+            response = forward(ctx, request.retain());
+        }
+        CompletableFuture<?> previous = lastResponse;
+        lastResponse = previous.thenCombine(response, (ignored, message) -> message)
+            .thenAccept(message -> write(ctx, message, keepAlive));
+    }
+
+    /**
+     * The short key if this is GET /{canonical key}, otherwise null
+     */
+    static String redirectKey(FullHttpRequest request) {
+        if (!HttpMethod.GET.equals(request.method())) {
+            return null;
+        }
+        String uri = request.uri();
+        int end = uri.indexOf('?');
+        String path = end < 0 ? uri : uri.substring(0, end);
+        if (path.length() < 2 || path.charAt(0) != '/') {
+            return null;
+        }
+        String key = path.substring(1);
+        try {
+            IDConverter.decode(key);
+        } catch (IllegalArgumentException e) {
+            return null; // /actuator, /h2-console, /stats/...: not a key, Spring handles it
+        }
+        return key;
+    }
+
+    private static Object errorResponse(String shortKey, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ShortKeyNotFoundException) {
+            return NOT_FOUND.duplicate();
+        }
+        LOGGER.error("Redirect lookup failed for {}: {}", shortKey, cause.getMessage());
+        return SERVER_ERROR.duplicate();
+    }
+
+    private void write(ChannelHandlerContext ctx, Object message, boolean keepAlive) {
+        // Preformatted bytes skip the HTTP encoder; relayed responses go through it
+        ChannelHandlerContext target = message instanceof ByteBuf ? ctx.pipeline().context("encoder") : ctx;
+        if (keepAlive) {
+            target.writeAndFlush(message);
+        } else {
+            target.writeAndFlush(message).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * Relay a request to the Spring application over a one-shot connection
+     */
+    private CompletableFuture<Object> forward(ChannelHandlerContext ctx, FullHttpRequest request) {
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        String clientIp = ((InetSocketAddress) ctx.channel().remoteAddress()).getAddress().getHostAddress();
+        String forwardedFor = request.headers().get("X-Forwarded-For");
+        request.headers().set("X-Forwarded-For", forwardedFor == null ? clientIp : forwardedFor + ", " + clientIp);
+        request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+
+        new Bootstrap()
+            .group(ctx.channel().eventLoop())
+            .channel(NioSocketChannel.class)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.pipeline()
+                        .addLast(new HttpClientCodec())
+                        .addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH))
+                        .addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext backend, FullHttpResponse reply) {
+                                response.complete(reply.retain());
+                                backend.close();
+                            }
+
+                            @Override
+                            public void channelInactive(ChannelHandlerContext backend) {
+                                // No-op if the response already arrived
+                                response.complete(BAD_GATEWAY.duplicate());
+                            }
+
+                            @Override
+                            public void exceptionCaught(ChannelHandlerContext backend, Throwable cause) {
+                                LOGGER.error("Fallback request failed: {}", cause.getMessage());
+                                response.complete(BAD_GATEWAY.duplicate());
+                                backend.close();
+                            }
+                        });
+                }
+            })
+            .connect(fallbackHost, fallbackPort)
+            .addListener((ChannelFutureListener) connected -> {
+                if (connected.isSuccess()) {
+                    connected.channel().writeAndFlush(request);
+                } else {
+                    request.release();
+                    LOGGER.error("Fallback to {}:{} unreachable: {}", fallbackHost, fallbackPort,
+                        connected.cause().getMessage());
+                    response.complete(BAD_GATEWAY.duplicate());
+                }
+            });
+        return response;
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.error("Redirect front end connection error: {}", cause.getMessage());
+        ctx.close();
+    }
+}
@@ -0,0 +1,102 @@
+package urlshortener.app.controller;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import urlshortener.app.service.AnalyticsService;
+import urlshortener.app.service.URLConverterService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Optional Netty front end that serves GET /{shortKey} without Spring MVC
+ *
+ * Redirects are answered straight from URLConverterService (L1, Redis, DB)
+ * with preformatted response bytes: no DispatcherServlet, no RedirectView,
+ * no view resolution. Anything that is not a redirect (creates, stats,
+ * actuator, console) is relayed to the Spring application, so clients can
+ * use this port for everything.
+ *
+ * Enabled with urlshortener.redirect-server.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "urlshortener.redirect-server.enabled", havingValue = "true")
+public class NettyRedirectServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyRedirectServer.class);
+    private static final int MAX_CONTENT_LENGTH = 1 << 20;
+
+    private final URLConverterService urlConverterService;
+    private final AnalyticsService analyticsService;
+    private final int port;
+    private final int ioThreads;
+    private final String fallbackHost;
+    private final int fallbackPort;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    @Autowired
+    public NettyRedirectServer(URLConverterService urlConverterService, AnalyticsService analyticsService,
+                               @Value("${urlshortener.redirect-server.port:8081}") int port,
+                               @Value("${urlshortener.redirect-server.io-threads:0}") int ioThreads,
+                               @Value("${urlshortener.redirect-server.fallback-host:127.0.0.1}") String fallbackHost,
+                               @Value("${server.port:8080}") int fallbackPort) {
+        this.urlConverterService = urlConverterService;
+        this.analyticsService = analyticsService;
+        this.port = port;
+        this.ioThreads = ioThreads;
+        this.fallbackHost = fallbackHost;
+        this.fallbackPort = fallbackPort;
+    }
+
+    @PostConstruct
+    public void start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        // 0 lets Netty pick 2 x cores
+        workerGroup = new NioEventLoopGroup(ioThreads);
+        serverChannel = new ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channel(NioServerSocketChannel.class)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.pipeline()
+                        .addLast("decoder", new HttpRequestDecoder())
+                        .addLast("encoder", new HttpResponseEncoder())
+                        .addLast("aggregator", new HttpObjectAggregator(MAX_CONTENT_LENGTH))
+                        .addLast("handler", new NettyRedirectHandler(urlConverterService, analyticsService,
+                            fallbackHost, fallbackPort));
+                }
+            })
+            .bind(port)
+            .sync()
+            .channel();
+        LOGGER.info("Netty redirect front end listening on port {}, relaying other requests to {}:{}",
+            port, fallbackHost, fallbackPort);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+}
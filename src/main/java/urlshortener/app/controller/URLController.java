@@ -5,10 +5,15 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.servlet.view.RedirectView;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.common.RedirectResponse;
 import urlshortener.app.common.URLValidator;
 import urlshortener.app.exception.RateLimitExceededException;
+import urlshortener.app.model.ClickRollup.Granularity;
 import urlshortener.app.service.AnalyticsService;
 import urlshortener.app.service.RateLimiterService;
 import urlshortener.app.service.URLConverterService;
@@ -16,9 +21,9 @@ import urlshortener.app.service.URLConverterService;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.io.IOException;
-import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 @RestController
@@ -27,13 +32,16 @@ public class URLController {
     private final URLConverterService urlConverterService;
     private final RateLimiterService rateLimiterService;
     private final AnalyticsService analyticsService;
+    private final boolean asyncRedirects;
 
     public URLController(URLConverterService urlConverterService, 
                         RateLimiterService rateLimiterService,
-                        AnalyticsService analyticsService) {
+                        AnalyticsService analyticsService,
+                        @Value("${urlshortener.redirect.async:true}") boolean asyncRedirects) {
         this.urlConverterService = urlConverterService;
         this.rateLimiterService = rateLimiterService;
         this.analyticsService = analyticsService;
+        this.asyncRedirects = asyncRedirects;
     }
 
     @RequestMapping(value = "/shortener", method=RequestMethod.POST, consumes = {"application/json"})
@@ -56,7 +64,9 @@ public class URLController {
         String longUrl = shortenRequest.getUrl();
         if (URLValidator.INSTANCE.validateURL(longUrl)) {
             String localURL = request.getRequestURL().toString();
-            String shortenedUrl = urlConverterService.shortenURL(localURL, shortenRequest.getUrl());
+            RedirectPolicy policy = RedirectPolicy.of(shortenRequest.getPermanent(),
+                shortenRequest.getMaxAgeSeconds(), shortenRequest.getTrackClicks());
+            String shortenedUrl = urlConverterService.shortenURL(localURL, shortenRequest.getUrl(), policy);
             
             // Initialize analytics for new URL
             String shortKey = shortenedUrl.substring(shortenedUrl.lastIndexOf('/') + 1);
@@ -74,19 +84,37 @@ public class URLController {
     }
 
     @RequestMapping(value = "/{id}", method=RequestMethod.GET)
-    public RedirectView redirectUrl(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) throws IOException, URISyntaxException, Exception {
+    public CompletableFuture<ResponseEntity<Void>> redirectUrl(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) throws Exception {
         // NOTE: Redirects are NOT rate limited - only URL creation is rate limited
         // Reason: Redirects should be fast and unrestricted for end users
         LOGGER.info("Received shortened url to redirect: " + id);
         
-        // Record click analytics (atomic increment in Redis)
-        analyticsService.recordClick(id);
+        if (!asyncRedirects) {
+            // Blocking mode: this request thread waits for the lookup and analytics in turn
+            RedirectResponse redirect = urlConverterService.getRedirect(id);
+            analyticsService.recordClick(id);
+            return CompletableFuture.completedFuture(redirectTo(redirect));
+        }
         
-        String redirectUrlString = urlConverterService.getLongURLFromID(id);
-        LOGGER.info("Original URL: " + redirectUrlString);
-        RedirectView redirectView = new RedirectView();
-        redirectView.setUrl("http://" + redirectUrlString);
-        return redirectView;
+        // The request thread is released here; the response is written when the lookup completes.
+        // Only keys that resolved are counted: a 404 must not create analytics for a key never issued
+        return urlConverterService.getRedirectAsync(id).thenApply(redirect -> {
+            analyticsService.recordClickAsync(id);
+            return redirectTo(redirect);
+        });
+    }
+    
+    /**
+     * Status and headers come precomputed with the mapping; no RedirectView or view resolution
+     */
+    private ResponseEntity<Void> redirectTo(RedirectResponse redirect) {
+        LOGGER.info("Original URL: " + redirect.getLongUrl());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(redirect.getStatus())
+            .header(HttpHeaders.LOCATION, redirect.getLocation());
+        if (redirect.getCacheControl() != null) {
+            response.header(HttpHeaders.CACHE_CONTROL, redirect.getCacheControl());
+        }
+        return response.build();
     }
     
     @RequestMapping(value = "/stats/{id}", method=RequestMethod.GET)
@@ -95,11 +123,34 @@ public class URLController {
         return analyticsService.getStats(id);
     }
     
+    /**
+     * Clicks per hour or day from the rollups; from/to are epoch millis and default
+     * to the last 24 hours (hour) or the last 30 days (day)
+     */
+    @RequestMapping(value = "/stats/{id}/timeseries", method=RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> getTimeSeries(@PathVariable String id,
+                                                             @RequestParam(required = false) Long from,
+                                                             @RequestParam(required = false) Long to,
+                                                             @RequestParam(defaultValue = "hour") String granularity) {
+        LOGGER.info("Fetching {} click time series for: {}", granularity, id);
+        try {
+            Granularity bucket = Granularity.parse(granularity);
+            long end = to != null ? to : System.currentTimeMillis();
+            long start = from != null ? from : end - (bucket == Granularity.HOUR ? 24 : 30) * bucket.getMillis();
+            return ResponseEntity.ok(analyticsService.getTimeSeries(id, start, end, bucket));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     /**
      * Extract client IP address from request
      * Checks X-Forwarded-For header for proxy/load balancer scenarios
      */
-    private String getClientIp(HttpServletRequest request) {
+    static String getClientIp(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
             // X-Forwarded-For can contain multiple IPs, take the first one
@@ -111,6 +162,10 @@ public class URLController {
 
 class ShortenRequest{
     private String url;
+    // Optional redirect policy; omitted fields take the RedirectPolicy defaults
+    private Boolean permanent;
+    private Integer maxAgeSeconds;
+    private Boolean trackClicks;
 
     @JsonCreator
     public ShortenRequest() {
@@ -129,6 +184,30 @@ class ShortenRequest{
     public void setUrl(String url) {
         this.url = url;
     }
+
+    public Boolean getPermanent() {
+        return permanent;
+    }
+
+    public void setPermanent(Boolean permanent) {
+        this.permanent = permanent;
+    }
+
+    public Integer getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public void setMaxAgeSeconds(Integer maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    public Boolean getTrackClicks() {
+        return trackClicks;
+    }
+
+    public void setTrackClicks(Boolean trackClicks) {
+        this.trackClicks = trackClicks;
+    }
 }
 
 
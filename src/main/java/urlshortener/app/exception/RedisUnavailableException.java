@@ -0,0 +1,10 @@
+package urlshortener.app.exception;
+
+/**
+ * Thrown instead of calling Redis while the circuit breaker is open
+ */
+public class RedisUnavailableException extends RuntimeException {
+    public RedisUnavailableException(String message) {
+        super(message);
+    }
+}
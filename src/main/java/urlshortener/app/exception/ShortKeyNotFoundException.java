@@ -0,0 +1,17 @@
+package urlshortener.app.exception;
+
+/**
+ * Thrown when a short key does not map to any URL (never issued or malformed)
+ */
+public class ShortKeyNotFoundException extends RuntimeException {
+    private final String shortKey;
+
+    public ShortKeyNotFoundException(String shortKey) {
+        super("URL for short key " + shortKey + " does not exist");
+        this.shortKey = shortKey;
+    }
+
+    public String getShortKey() {
+        return shortKey;
+    }
+}
@@ -0,0 +1,145 @@
+package urlshortener.app.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Clicks of one short key in one hour or one day (UTC buckets)
+ *
+ * Rows are only ever added to with SQL increments, see URLAnalyticsBatchUpsert.
+ */
+@Entity
+@Table(name = "click_rollups")
+@IdClass(ClickRollup.Key.class)
+public class ClickRollup {
+
+    public enum Granularity {
+        HOUR(3600000L),
+        DAY(86400000L);
+
+        private final long millis;
+
+        Granularity(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Start of the bucket holding the given epoch millisecond
+         */
+        public long bucketStart(long timestamp) {
+            return timestamp - Math.floorMod(timestamp, millis);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the name is not a granularity (case-insensitive)
+         */
+        public static Granularity parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown granularity '" + name + "', expected hour or day");
+            }
+        }
+    }
+
+    public static class Key implements Serializable {
+        private String shortKey;
+        private Granularity granularity;
+        private Long bucketStart;
+
+        public Key() {
+        }
+
+        public Key(String shortKey, Granularity granularity, Long bucketStart) {
+            this.shortKey = shortKey;
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+        }
+
+        public String getShortKey() {
+            return shortKey;
+        }
+
+        public Granularity getGranularity() {
+            return granularity;
+        }
+
+        public Long getBucketStart() {
+            return bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(shortKey, other.shortKey) && granularity == other.granularity
+                && Objects.equals(bucketStart, other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shortKey, granularity, bucketStart);
+        }
+    }
+
+    @Id
+    private String shortKey;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private Granularity granularity;
+
+    // Epoch millis of the bucket start
+    @Id
+    private Long bucketStart;
+
+    @Column(nullable = false)
+    private Long clicks = 0L;
+
+    public ClickRollup() {
+    }
+
+    public String getShortKey() {
+        return shortKey;
+    }
+
+    public void setShortKey(String shortKey) {
+        this.shortKey = shortKey;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public Long getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Long bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getClicks() {
+        return clicks;
+    }
+
+    public void setClicks(Long clicks) {
+        this.clicks = clicks;
+    }
+}
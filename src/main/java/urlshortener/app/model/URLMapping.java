@@ -1,5 +1,7 @@
 package urlshortener.app.model;
 
+import urlshortener.app.common.RedirectPolicy;
+
 import javax.persistence.*;
 
 @Entity
@@ -21,6 +23,16 @@ public class URLMapping {
     
     @Column(nullable = false)
     private Long createdAt;
+    
+    // Redirect policy; null columns (rows created before policies existed) mean the default
+    @Column
+    private Boolean permanentRedirect;
+    
+    @Column
+    private Integer cacheMaxAgeSeconds;
+    
+    @Column
+    private Boolean trackClicks;
 
     public URLMapping() {
     }
@@ -71,4 +83,47 @@ public class URLMapping {
     public void setCreatedAt(Long createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Boolean getPermanentRedirect() {
+        return permanentRedirect;
+    }
+
+    public void setPermanentRedirect(Boolean permanentRedirect) {
+        this.permanentRedirect = permanentRedirect;
+    }
+
+    public Integer getCacheMaxAgeSeconds() {
+        return cacheMaxAgeSeconds;
+    }
+
+    public void setCacheMaxAgeSeconds(Integer cacheMaxAgeSeconds) {
+        this.cacheMaxAgeSeconds = cacheMaxAgeSeconds;
+    }
+
+    public Boolean getTrackClicks() {
+        return trackClicks;
+    }
+
+    public void setTrackClicks(Boolean trackClicks) {
+        this.trackClicks = trackClicks;
+    }
+
+    @Transient
+    public RedirectPolicy getRedirectPolicy() {
+        return RedirectPolicy.of(permanentRedirect, cacheMaxAgeSeconds, trackClicks);
+    }
+
+    public void setRedirectPolicy(RedirectPolicy policy) {
+        this.permanentRedirect = policy.isPermanent();
+        this.cacheMaxAgeSeconds = policy.getMaxAgeSeconds();
+        this.trackClicks = policy.isTrackClicks();
+    }
+
+    /**
+     * The value stored in the cache tiers: long URL plus encoded policy
+     */
+    @Transient
+    public String getCacheValue() {
+        return getRedirectPolicy().encode(longUrl);
+    }
 }
@@ -0,0 +1,30 @@
+package urlshortener.app.repository;
+
+/**
+ * Clicks to add to one short key, and when they happened
+ *
+ * When one delta stands for several clicks, timestamp is the latest of them.
+ */
+public final class ClickDelta {
+    private final String shortKey;
+    private final long clicks;
+    private final long timestamp;
+
+    public ClickDelta(String shortKey, long clicks, long timestamp) {
+        this.shortKey = shortKey;
+        this.clicks = clicks;
+        this.timestamp = timestamp;
+    }
+
+    public String getShortKey() {
+        return shortKey;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
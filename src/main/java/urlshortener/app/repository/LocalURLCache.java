@@ -0,0 +1,101 @@
+package urlshortener.app.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.common.RedirectResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-JVM L1 cache of shortKey -> longUrl, consulted before Redis
+ *
+ * Caffeine's W-TinyLFU admission keeps the frequently clicked head of our
+ * Zipfian key distribution resident and refuses one-hit wonders, so a scan
+ * of cold keys cannot flush the hot set. Entries are bounded by count and
+ * expire a fixed time after being written so the JVM never serves a mapping
+ * much older than Redis would.
+ *
+ * Each entry is the mapping's precomputed RedirectResponse (honouring its
+ * RedirectPolicy), built once when the mapping is cached; writing or
+ * invalidating the mapping replaces it.
+ *
+ * Hit/miss/eviction counters are published as cache.* metrics tagged cache=url.l1,
+ * precomputed response memory as urlshortener.redirect.responses.bytes.
+ */
+@Repository
+public class LocalURLCache {
+    private final Cache<String, RedirectResponse> cache;
+    private final String cacheControl;
+    private final AtomicLong responseBytes = new AtomicLong();
+
+    public LocalURLCache(MeterRegistry meterRegistry, long maxSize, long ttlSeconds) {
+        this(meterRegistry, maxSize, ttlSeconds, "");
+    }
+
+    @Autowired
+    public LocalURLCache(MeterRegistry meterRegistry,
+                         @Value("${urlshortener.cache.l1.max-size:100000}") long maxSize,
+                         @Value("${urlshortener.cache.l1.ttl-seconds:600}") long ttlSeconds,
+                         @Value("${urlshortener.redirect.cache-control:}") String cacheControl) {
+        this.cacheControl = cacheControl;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .removalListener((String shortKey, RedirectResponse redirect, RemovalCause cause) ->
+                responseBytes.addAndGet(-redirect.retainedBytes()))
+            // Keep the byte count exact: run the listener on the evicting thread
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "url.l1");
+        Gauge.builder("urlshortener.redirect.responses.bytes", responseBytes, AtomicLong::get)
+            .description("Heap held by precomputed redirect responses in the L1 cache")
+            .register(meterRegistry);
+    }
+
+    public String get(String shortKey) {
+        RedirectResponse redirect = cache.getIfPresent(shortKey);
+        return redirect == null ? null : redirect.getLongUrl();
+    }
+
+    public RedirectResponse getRedirect(String shortKey) {
+        return cache.getIfPresent(shortKey);
+    }
+
+    /**
+     * Cache a mapping; value is the long URL, policy-encoded if the mapping has a non-default RedirectPolicy
+     */
+    public void put(String shortKey, String value) {
+        RedirectResponse redirect = redirectFor(value);
+        responseBytes.addAndGet(redirect.retainedBytes());
+        cache.put(shortKey, redirect);
+    }
+
+    /**
+     * Build the response for a mapping without caching it
+     */
+    public RedirectResponse redirectFor(String value) {
+        return RedirectPolicy.policyOf(value).responseFor(RedirectPolicy.longUrlOf(value), cacheControl);
+    }
+
+    public void invalidate(String shortKey) {
+        cache.invalidate(shortKey);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long responseBytes() {
+        return responseBytes.get();
+    }
+}
@@ -0,0 +1,171 @@
+package urlshortener.app.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import redis.clients.jedis.Pipeline;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived memory of short keys that were looked up and do not exist
+ *
+ * Two tiers:
+ *   local  bounded Caffeine set, consulted before anything else; free to check
+ *   redis  optional nf:{shortKey} entries (redis-ttl-seconds > 0) so a miss
+ *          found by one node saves the DB query on the others
+ *
+ * Entries are dropped when the key is issued. Other nodes' local entries
+ * simply age out, so TTLs are kept short.
+ */
+@Repository
+public class NegativeURLCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeURLCache.class);
+    private static final String REDIS_KEY_PREFIX = "nf:";
+    private static final Object PRESENT = Boolean.TRUE;
+
+    private final Cache<String, Object> local;
+    private final RedisClient redisClient;
+    private final int redisTtlSeconds;
+    private final Counter localHits;
+    private final Counter redisHits;
+
+    @Autowired
+    public NegativeURLCache(RedisClient redisClient, MeterRegistry meterRegistry,
+                            @Value("${urlshortener.cache.negative.max-size:100000}") long maxSize,
+                            @Value("${urlshortener.cache.negative.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${urlshortener.cache.negative.redis-ttl-seconds:0}") int redisTtlSeconds) {
+        this.redisClient = redisClient;
+        this.redisTtlSeconds = redisTtlSeconds;
+        this.local = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .build();
+        this.localHits = Counter.builder("urlshortener.cache.negative.hits")
+            .tag("tier", "local")
+            .description("Lookups of unknown short keys answered from the negative cache")
+            .register(meterRegistry);
+        this.redisHits = Counter.builder("urlshortener.cache.negative.hits")
+            .tag("tier", "redis")
+            .description("Lookups of unknown short keys answered from the negative cache")
+            .register(meterRegistry);
+        Gauge.builder("urlshortener.cache.negative.size", local, Cache::estimatedSize)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether this node recently saw the key missing (no I/O)
+     */
+    public boolean isKnownMissing(String shortKey) {
+        if (local.getIfPresent(shortKey) == null) {
+            return false;
+        }
+        localHits.increment();
+        return true;
+    }
+
+    /**
+     * Whether any node recently saw the key missing; one Redis round trip when enabled
+     */
+    public boolean isKnownMissingShared(String shortKey) {
+        if (redisTtlSeconds <= 0 || !redisClient.isAvailable()) {
+            return false;
+        }
+        try {
+            if (!redisClient.execute(jedis -> jedis.exists(REDIS_KEY_PREFIX + shortKey))) {
+                return false;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to check negative cache: {}", e.getMessage());
+            return false;
+        }
+        redisHits.increment();
+        local.put(shortKey, PRESENT);
+        return true;
+    }
+
+    public void markMissing(String shortKey) {
+        local.put(shortKey, PRESENT);
+        if (redisTtlSeconds <= 0 || !redisClient.isAvailable()) {
+            return;
+        }
+        try {
+            redisClient.execute(jedis -> jedis.setex(REDIS_KEY_PREFIX + shortKey, redisTtlSeconds, "1"));
+        } catch (Exception e) {
+            LOGGER.error("Failed to write negative cache entry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Remember a batch of missing keys; the shared tier is written with one pipeline
+     */
+    public void markAllMissing(Collection<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return;
+        }
+        for (String shortKey : shortKeys) {
+            local.put(shortKey, PRESENT);
+        }
+        if (redisTtlSeconds <= 0 || !redisClient.isAvailable()) {
+            return;
+        }
+        try {
+            redisClient.execute(jedis -> {
+                Pipeline pipeline = jedis.pipelined();
+                for (String shortKey : shortKeys) {
+                    pipeline.setex(REDIS_KEY_PREFIX + shortKey, redisTtlSeconds, "1");
+                }
+                pipeline.sync();
+                return null;
+            });
+        } catch (Exception e) {
+            LOGGER.error("Failed to write negative cache entries: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forget a key that has just been issued
+     */
+    public void invalidate(String shortKey) {
+        local.invalidate(shortKey);
+        if (redisTtlSeconds <= 0 || !redisClient.isAvailable()) {
+            return;
+        }
+        try {
+            redisClient.execute(jedis -> jedis.del(REDIS_KEY_PREFIX + shortKey));
+        } catch (Exception e) {
+            LOGGER.error("Failed to invalidate negative cache entry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop entries for a batch of newly issued keys; the shared tier is cleared with one DEL
+     */
+    public void invalidateAll(Collection<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return;
+        }
+        local.invalidateAll(shortKeys);
+        if (redisTtlSeconds <= 0 || !redisClient.isAvailable()) {
+            return;
+        }
+        String[] keys = new String[shortKeys.size()];
+        int i = 0;
+        for (String shortKey : shortKeys) {
+            keys[i++] = REDIS_KEY_PREFIX + shortKey;
+        }
+        try {
+            redisClient.execute(jedis -> jedis.del(keys));
+        } catch (Exception e) {
+            LOGGER.error("Failed to invalidate negative cache entries: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package urlshortener.app.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Self-healing circuit breaker shared by every Redis user
+ *
+ * CLOSED    - calls go through; outcomes land in a sliding window of the last N calls.
+ *             Once at least minimumCalls are recorded and the failure rate reaches
+ *             the threshold, the breaker opens.
+ * OPEN      - calls fail fast without touching the pool. After the current backoff
+ *             exactly one caller is let through as a probe.
+ * HALF_OPEN - the probe is in flight. Success closes the breaker and resets the
+ *             backoff; failure reopens it with the backoff doubled (capped).
+ *
+ * All state lives in atomics, so the hot path is a volatile read when closed.
+ *
+ * Metrics:
+ *   urlshortener.redis.circuit.state        0=closed, 1=half-open, 2=open
+ *   urlshortener.redis.circuit.transitions  tagged from/to
+ */
+public class RedisCircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final int DEFAULT_MINIMUM_CALLS = 10;
+    public static final double DEFAULT_FAILURE_RATE = 0.5;
+    public static final long DEFAULT_BASE_BACKOFF_MS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 30000;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong recordedCalls = new AtomicLong();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile long backoffNanos;
+    private volatile long openUntilNanos;
+
+    public RedisCircuitBreaker(MeterRegistry meterRegistry) {
+        this(meterRegistry, DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, DEFAULT_FAILURE_RATE,
+            DEFAULT_BASE_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+    }
+
+    public RedisCircuitBreaker(MeterRegistry meterRegistry, int windowSize, int minimumCalls,
+                               double failureRateThreshold, long baseBackoffMs, long maxBackoffMs) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.baseBackoffNanos = TimeUnit.MILLISECONDS.toNanos(baseBackoffMs);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMs);
+        this.backoffNanos = baseBackoffNanos;
+        this.outcomes = new AtomicIntegerArray(windowSize);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("urlshortener.redis.circuit.state", state, s -> s.get().ordinal())
+            .description("Redis circuit breaker state: 0=closed, 1=half-open, 2=open")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether a call may go to Redis now. When the open period has elapsed the
+     * first caller to ask becomes the half-open probe and must report its outcome.
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            return transition(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    /**
+     * Side-effect free view for callers that only want to skip optional work
+     */
+    public boolean isCallPermitted() {
+        State current = state.get();
+        return current == State.CLOSED
+            || (current == State.OPEN && System.nanoTime() - openUntilNanos >= 0);
+    }
+
+    public void onSuccess() {
+        if (state.get() == State.HALF_OPEN) {
+            resetWindow();
+            backoffNanos = baseBackoffNanos;
+            transition(State.HALF_OPEN, State.CLOSED);
+            return;
+        }
+        record(0);
+    }
+
+    public void onFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            backoffNanos = Math.min(maxBackoffNanos, backoffNanos * 2);
+            openUntilNanos = System.nanoTime() + backoffNanos;
+            transition(State.HALF_OPEN, State.OPEN);
+            return;
+        }
+        if (current == State.CLOSED) {
+            record(1);
+            if (exceedsThreshold()) {
+                openUntilNanos = System.nanoTime() + backoffNanos;
+                transition(State.CLOSED, State.OPEN);
+            }
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    private void record(int failed) {
+        int slot = (int) (recordedCalls.getAndIncrement() % windowSize);
+        failures.addAndGet(failed - outcomes.getAndSet(slot, failed));
+    }
+
+    private boolean exceedsThreshold() {
+        long calls = Math.min(recordedCalls.get(), windowSize);
+        return calls >= minimumCalls && failures.get() >= failureRateThreshold * calls;
+    }
+
+    private void resetWindow() {
+        for (int i = 0; i < windowSize; ++i) {
+            failures.addAndGet(-outcomes.getAndSet(i, 0));
+        }
+        recordedCalls.set(0);
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (to == State.OPEN) {
+            LOGGER.warn("Redis circuit {} -> OPEN, next probe in {}ms", from,
+                TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+        } else {
+            LOGGER.info("Redis circuit {} -> {}", from, to);
+        }
+        Counter.builder("urlshortener.redis.circuit.transitions")
+            .tag("from", from.name())
+            .tag("to", to.name())
+            .register(meterRegistry)
+            .increment();
+        return true;
+    }
+}
@@ -0,0 +1,201 @@
+package urlshortener.app.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+import urlshortener.app.exception.RedisUnavailableException;
+
+import javax.annotation.PreDestroy;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Shared, thread-safe Redis access for every service
+ *
+ * A single Jedis connection is not thread-safe, so each command borrows a
+ * connection from a JedisPool for the duration of one call (or one pipeline)
+ * and hands it straight back. Callers never hold a Jedis reference.
+ *
+ * Every call goes through a shared RedisCircuitBreaker: while Redis is down
+ * calls fail fast with RedisUnavailableException, and the breaker probes its
+ * way back to closed on its own once Redis recovers.
+ *
+ * Jedis is blocking only, so executeAsync runs commands on a small dedicated
+ * I/O pool: request threads hand the call off and are released, and at most
+ * async-threads connections are tied up by async callers at once.
+ *
+ * Metrics:
+ *   urlshortener.redis.pool.borrow          time spent waiting for a connection
+ *   urlshortener.redis.pool.borrow.timeouts borrows that gave up after max-wait
+ *   urlshortener.redis.pool.active/idle/waiters
+ */
+@Component
+public class RedisClient implements AutoCloseable {
+    private static final int DEFAULT_TIMEOUT_MS = 2000;
+    private static final int DEFAULT_MAX_TOTAL = 64;
+    private static final int DEFAULT_MIN_IDLE = 8;
+    private static final long DEFAULT_MAX_WAIT_MS = 500;
+    private static final int DEFAULT_ASYNC_THREADS = 16;
+
+    private final Pool<Jedis> pool;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final Timer borrowTimer;
+    private final Counter borrowTimeouts;
+    private final ExecutorService asyncExecutor;
+
+    @Autowired
+    public RedisClient(MeterRegistry meterRegistry,
+                       @Value("${urlshortener.redis.host:localhost}") String host,
+                       @Value("${urlshortener.redis.port:6379}") int port,
+                       @Value("${urlshortener.redis.timeout-ms:2000}") int timeoutMs,
+                       @Value("${urlshortener.redis.pool.max-total:64}") int maxTotal,
+                       @Value("${urlshortener.redis.pool.min-idle:8}") int minIdle,
+                       @Value("${urlshortener.redis.pool.max-wait-ms:500}") long maxWaitMs,
+                       @Value("${urlshortener.redis.circuit.window-size:20}") int circuitWindowSize,
+                       @Value("${urlshortener.redis.circuit.minimum-calls:10}") int circuitMinimumCalls,
+                       @Value("${urlshortener.redis.circuit.failure-rate:0.5}") double circuitFailureRate,
+                       @Value("${urlshortener.redis.circuit.base-backoff-ms:1000}") long circuitBaseBackoffMs,
+                       @Value("${urlshortener.redis.circuit.max-backoff-ms:30000}") long circuitMaxBackoffMs,
+                       @Value("${urlshortener.redis.async-threads:16}") int asyncThreads) {
+        this(new JedisPool(poolConfig(maxTotal, minIdle, maxWaitMs), host, port, timeoutMs),
+            new RedisCircuitBreaker(meterRegistry, circuitWindowSize, circuitMinimumCalls, circuitFailureRate,
+                circuitBaseBackoffMs, circuitMaxBackoffMs),
+            meterRegistry, asyncThreads);
+    }
+
+    public RedisClient(String host, int port) {
+        this(host, port, DEFAULT_MAX_TOTAL, DEFAULT_MAX_WAIT_MS, new SimpleMeterRegistry());
+    }
+
+    public RedisClient(String host, int port, int maxTotal, long maxWaitMs, MeterRegistry meterRegistry) {
+        this(host, port, maxTotal, maxWaitMs, new RedisCircuitBreaker(meterRegistry), meterRegistry);
+    }
+
+    public RedisClient(String host, int port, int maxTotal, long maxWaitMs,
+                       RedisCircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this(new JedisPool(poolConfig(maxTotal, Math.min(DEFAULT_MIN_IDLE, maxTotal), maxWaitMs), host, port,
+            DEFAULT_TIMEOUT_MS), circuitBreaker, meterRegistry);
+    }
+
+    public RedisClient(Pool<Jedis> pool, MeterRegistry meterRegistry) {
+        this(pool, new RedisCircuitBreaker(meterRegistry), meterRegistry);
+    }
+
+    public RedisClient(Pool<Jedis> pool, RedisCircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this(pool, circuitBreaker, meterRegistry, DEFAULT_ASYNC_THREADS);
+    }
+
+    public RedisClient(Pool<Jedis> pool, RedisCircuitBreaker circuitBreaker, MeterRegistry meterRegistry,
+                       int asyncThreads) {
+        this.pool = pool;
+        this.circuitBreaker = circuitBreaker;
+        this.borrowTimer = Timer.builder("urlshortener.redis.pool.borrow")
+            .description("Time spent waiting for a pooled Redis connection")
+            .register(meterRegistry);
+        this.borrowTimeouts = Counter.builder("urlshortener.redis.pool.borrow.timeouts")
+            .description("Borrows that gave up after max-wait")
+            .register(meterRegistry);
+        Gauge.builder("urlshortener.redis.pool.active", pool, Pool::getNumActive).register(meterRegistry);
+        Gauge.builder("urlshortener.redis.pool.idle", pool, Pool::getNumIdle).register(meterRegistry);
+        Gauge.builder("urlshortener.redis.pool.waiters", pool, Pool::getNumWaiters).register(meterRegistry);
+        this.asyncExecutor = Executors.newFixedThreadPool(asyncThreads, runnable -> {
+            Thread thread = new Thread(runnable, "redis-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static JedisPoolConfig poolConfig(int maxTotal, int minIdle, long maxWaitMs) {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setMinIdle(minIdle);
+        config.setMaxWaitMillis(maxWaitMs);
+        config.setBlockWhenExhausted(true);
+        // Cull connections that died while Redis was away before a probe can borrow them
+        config.setTestWhileIdle(true);
+        config.setTimeBetweenEvictionRunsMillis(5000);
+        return config;
+    }
+
+    /**
+     * Run one command (or one pipeline) on a pooled connection
+     *
+     * @throws RedisUnavailableException if the circuit is open
+     */
+    public <T> T execute(Function<Jedis, T> command) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new RedisUnavailableException("Redis circuit open, skipping call");
+        }
+        T result;
+        try (Jedis jedis = borrow()) {
+            result = command.apply(jedis);
+        } catch (JedisDataException e) {
+            // Redis answered; the command itself was bad
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // Connection errors, socket timeouts and pool exhaustion all count against Redis
+            circuitBreaker.onFailure();
+            throw e;
+        }
+        circuitBreaker.onSuccess();
+        return result;
+    }
+
+    /**
+     * Run one command (or one pipeline) on the Redis I/O pool without blocking the caller
+     *
+     * The future fails with RedisUnavailableException if the circuit is open.
+     */
+    public <T> CompletableFuture<T> executeAsync(Function<Jedis, T> command) {
+        return CompletableFuture.supplyAsync(() -> execute(command), asyncExecutor);
+    }
+
+    /**
+     * Whether Redis is worth trying right now (closed, or due for a recovery probe)
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    public RedisCircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private Jedis borrow() {
+        long start = System.nanoTime();
+        try {
+            return pool.getResource();
+        } catch (JedisException e) {
+            if (e.getCause() instanceof NoSuchElementException) {
+                borrowTimeouts.increment();
+            }
+            throw e;
+        } finally {
+            borrowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        asyncExecutor.shutdown();
+        pool.close();
+    }
+}
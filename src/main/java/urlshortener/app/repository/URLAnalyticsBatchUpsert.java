@@ -0,0 +1,27 @@
+package urlshortener.app.repository;
+
+import java.util.Collection;
+
+/**
+ * Bulk click fragment of URLAnalyticsRepository
+ *
+ * Adding clicks through save() loads each entity, adds in Java and writes it
+ * back: one SELECT per row, and two writers of the same row lose an update.
+ * This fragment adds the deltas inside the UPDATE itself, one JDBC batch for
+ * the whole collection.
+ */
+public interface URLAnalyticsBatchUpsert {
+    /**
+     * Add each delta to its key's row (totalClicks + clicks, clicksToday rolled over by
+     * date, lastAccessedAt only moved forward) and to the hourly and daily click rollups
+     * of its timestamp, creating rows that do not exist yet
+     *
+     * A key may appear in several deltas. All or nothing: on failure no delta has been applied.
+     */
+    void addClicks(Collection<ClickDelta> deltas);
+
+    /**
+     * Create a zeroed row, created now, for each key that has none; existing rows are left untouched
+     */
+    void createMissing(Collection<String> shortKeys);
+}
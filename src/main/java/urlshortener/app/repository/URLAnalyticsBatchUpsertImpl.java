@@ -0,0 +1,137 @@
+package urlshortener.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.annotation.Transactional;
+import urlshortener.app.model.ClickRollup;
+import urlshortener.app.model.ClickRollup.Granularity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class URLAnalyticsBatchUpsertImpl implements URLAnalyticsBatchUpsert {
+    private static final String UPDATE_SQL = "update url_analytics set "
+        + "total_clicks = total_clicks + ?, "
+        + "clicks_today = case when last_aggregation_date = ? then clicks_today + ? else ? end, "
+        + "last_aggregation_date = ?, "
+        + "last_accessed_at = greatest(last_accessed_at, ?) "
+        + "where short_key = ?";
+    private static final String INSERT_SQL = "insert into url_analytics "
+        + "(short_key, total_clicks, clicks_today, last_aggregation_date, last_accessed_at, created_at) "
+        + "values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MISSING_SQL = "insert into url_analytics "
+        + "(short_key, total_clicks, clicks_today, last_aggregation_date, last_accessed_at, created_at) "
+        + "select ?, 0, 0, ?, ?, ? from dual where not exists (select 1 from url_analytics where short_key = ?)";
+    private static final String UPDATE_ROLLUP_SQL = "update click_rollups set clicks = clicks + ? "
+        + "where short_key = ? and granularity = ? and bucket_start = ?";
+    private static final String INSERT_ROLLUP_SQL = "insert into click_rollups "
+        + "(short_key, granularity, bucket_start, clicks) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public URLAnalyticsBatchUpsertImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void addClicks(Collection<ClickDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        addTotals(deltas);
+        addRollups(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void createMissing(Collection<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return;
+        }
+        String today = LocalDate.now().toString();
+        long now = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate(INSERT_MISSING_SQL, new ArrayList<>(shortKeys), shortKeys.size(),
+            (statement, shortKey) -> {
+                statement.setString(1, shortKey);
+                statement.setString(2, today);
+                statement.setLong(3, now);
+                statement.setLong(4, now);
+                statement.setString(5, shortKey);
+            });
+    }
+
+    private void addTotals(Collection<ClickDelta> deltas) {
+        // One row per key: clicks summed, latest timestamp
+        Map<String, ClickDelta> perKey = new LinkedHashMap<>();
+        for (ClickDelta delta : deltas) {
+            perKey.merge(delta.getShortKey(), delta, (a, b) -> new ClickDelta(a.getShortKey(),
+                a.getClicks() + b.getClicks(), Math.max(a.getTimestamp(), b.getTimestamp())));
+        }
+        String today = LocalDate.now().toString();
+        long now = System.currentTimeMillis();
+        upsert(UPDATE_SQL, INSERT_SQL, new ArrayList<>(perKey.values()), (statement, delta) -> {
+            statement.setLong(1, delta.getClicks());
+            statement.setString(2, today);
+            statement.setLong(3, delta.getClicks());
+            statement.setLong(4, delta.getClicks());
+            statement.setString(5, today);
+            statement.setLong(6, delta.getTimestamp());
+            statement.setString(7, delta.getShortKey());
+        }, (statement, delta) -> {
+            statement.setString(1, delta.getShortKey());
+            statement.setLong(2, delta.getClicks());
+            statement.setLong(3, delta.getClicks());
+            statement.setString(4, today);
+            statement.setLong(5, delta.getTimestamp());
+            statement.setLong(6, now);
+        });
+    }
+
+    private void addRollups(Collection<ClickDelta> deltas) {
+        Map<ClickRollup.Key, Long> buckets = new LinkedHashMap<>();
+        for (ClickDelta delta : deltas) {
+            for (Granularity granularity : Granularity.values()) {
+                buckets.merge(new ClickRollup.Key(delta.getShortKey(), granularity,
+                    granularity.bucketStart(delta.getTimestamp())), delta.getClicks(), Long::sum);
+            }
+        }
+        upsert(UPDATE_ROLLUP_SQL, INSERT_ROLLUP_SQL, new ArrayList<>(buckets.entrySet()), (statement, bucket) -> {
+            statement.setLong(1, bucket.getValue());
+            statement.setString(2, bucket.getKey().getShortKey());
+            statement.setString(3, bucket.getKey().getGranularity().name());
+            statement.setLong(4, bucket.getKey().getBucketStart());
+        }, (statement, bucket) -> {
+            statement.setString(1, bucket.getKey().getShortKey());
+            statement.setString(2, bucket.getKey().getGranularity().name());
+            statement.setLong(3, bucket.getKey().getBucketStart());
+            statement.setLong(4, bucket.getValue());
+        });
+    }
+
+    /**
+     * Run the update batch, then the insert batch for the rows the update did not touch
+     */
+    private <T> void upsert(String updateSql, String insertSql, List<T> rows,
+                            ParameterizedPreparedStatementSetter<T> update,
+                            ParameterizedPreparedStatementSetter<T> insert) {
+        int[][] updated = jdbcTemplate.batchUpdate(updateSql, rows, rows.size(), update);
+        List<T> missing = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : updated) {
+            for (int count : batch) {
+                if (count == 0) {
+                    missing.add(rows.get(index));
+                }
+                index++;
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, missing, missing.size(), insert);
+        }
+    }
+}
@@ -1,10 +1,31 @@
 package urlshortener.app.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import urlshortener.app.model.ClickRollup;
 import urlshortener.app.model.URLAnalytics;
 
+import java.util.List;
+
 @Repository
-public interface URLAnalyticsRepository extends JpaRepository<URLAnalytics, String> {
+public interface URLAnalyticsRepository extends JpaRepository<URLAnalytics, String>, URLAnalyticsBatchUpsert {
     // shortKey is the primary key, so findById is sufficient
+
+    /**
+     * (shortKey, longUrl, permanentRedirect, cacheMaxAgeSeconds, trackClicks) rows
+     * of the most clicked mappings, hottest first
+     */
+    @Query("select m.shortKey, m.longUrl, m.permanentRedirect, m.cacheMaxAgeSeconds, m.trackClicks "
+        + "from URLAnalytics a, URLMapping m "
+        + "where m.shortKey = a.shortKey order by a.totalClicks desc, a.shortKey")
+    List<Object[]> findHottestMappings(Pageable pageable);
+
+    /**
+     * Rollups of one key and granularity with from <= bucketStart < to, oldest first
+     */
+    @Query("select r from ClickRollup r where r.shortKey = ?1 and r.granularity = ?2 "
+        + "and r.bucketStart >= ?3 and r.bucketStart < ?4 order by r.bucketStart")
+    List<ClickRollup> findRollups(String shortKey, ClickRollup.Granularity granularity, long from, long to);
 }
@@ -0,0 +1,18 @@
+package urlshortener.app.repository;
+
+import urlshortener.app.model.URLMapping;
+
+import java.util.List;
+
+/**
+ * Bulk insert fragment of URLMappingRepository
+ *
+ * IDENTITY ids make Hibernate insert entities one statement at a time, so
+ * bulk creation goes around JPA with a single JDBC batch.
+ */
+public interface URLMappingBatchInsert {
+    /**
+     * Insert new mappings in one JDBC batch; the entities' ids are not populated
+     */
+    void insertAll(List<URLMapping> mappings);
+}
@@ -0,0 +1,35 @@
+package urlshortener.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import urlshortener.app.model.URLMapping;
+
+import java.sql.Types;
+import java.util.List;
+
+public class URLMappingBatchInsertImpl implements URLMappingBatchInsert {
+    private static final String INSERT_SQL = "insert into url_mappings "
+        + "(short_key, long_url, url_hash, created_at, permanent_redirect, cache_max_age_seconds, track_clicks) "
+        + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public URLMappingBatchInsertImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<URLMapping> mappings) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, mappings, mappings.size(), (statement, mapping) -> {
+            statement.setString(1, mapping.getShortKey());
+            statement.setString(2, mapping.getLongUrl());
+            statement.setString(3, mapping.getUrlHash());
+            statement.setLong(4, mapping.getCreatedAt());
+            statement.setObject(5, mapping.getPermanentRedirect(), Types.BOOLEAN);
+            statement.setObject(6, mapping.getCacheMaxAgeSeconds(), Types.INTEGER);
+            statement.setObject(7, mapping.getTrackClicks(), Types.BOOLEAN);
+        });
+    }
+}
@@ -1,13 +1,26 @@
 package urlshortener.app.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import urlshortener.app.model.URLMapping;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface URLMappingRepository extends JpaRepository<URLMapping, Long> {
+public interface URLMappingRepository extends JpaRepository<URLMapping, Long>, URLMappingBatchInsert {
     Optional<URLMapping> findByShortKey(String shortKey);
+    List<URLMapping> findByShortKeyIn(Collection<String> shortKeys);
     Optional<URLMapping> findByUrlHash(String urlHash);
+    List<URLMapping> findByUrlHashIn(Collection<String> urlHashes);
+
+    /**
+     * Keyset page of (id, shortKey) rows after the given row id, without hydrating entities
+     */
+    @Query("select m.id, m.shortKey from URLMapping m where m.id > :afterId order by m.id")
+    List<Object[]> findShortKeysAfter(@Param("afterId") long afterId, Pageable pageable);
 }
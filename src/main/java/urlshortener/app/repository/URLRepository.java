@@ -2,116 +2,290 @@ package urlshortener.app.repository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.exception.RedisUnavailableException;
+import urlshortener.app.model.URLMapping;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Redis cache layer for URL mappings
+ *
+ * Every mapping is its own key with its own TTL:
+ *   url:{shortKey}  -> longUrl
+ *   hash:{urlHash}  -> shortKey
+ * Reads refresh the TTL (in the same round trip), so hot entries stay cached
+ * while cold ones age out individually instead of all at once.
+ */
 @Repository
 public class URLRepository {
-    private final Jedis jedis;
+    private final RedisClient redisClient;
     private final String idKey;
     private final String urlKey;
+    private final int cacheTtlSeconds;
+    private final IDRangeLeaser idLeaser;
     private static final Logger LOGGER = LoggerFactory.getLogger(URLRepository.class);
     private static final int CACHE_TTL_SECONDS = 86400; // 24 hours
-    private boolean redisAvailable = true;
+    private static final String HASH_KEY_PREFIX = "hash:";
+    // Pre per-key layout: one hash per kind, a single TTL shared by every entry
+    private static final String LEGACY_URL_HASH = "url:";
+    private static final String LEGACY_HASH_HASH = "hash:";
+    private static final int MIGRATION_BATCH_SIZE = 500;
+    private static final int DEFAULT_MIN_ID_BLOCK = 100;
+    private static final int DEFAULT_MAX_ID_BLOCK = 100000;
+    private static final long DEFAULT_ID_LEASE_INTERVAL_MS = 1000;
 
-    public URLRepository() {
-        this.jedis = new Jedis();
-        this.idKey = "id";
-        this.urlKey = "url:";
-        checkRedisHealth();
+    @Autowired
+    public URLRepository(RedisClient redisClient,
+                         @Value("${urlshortener.id.block.min-size:100}") int minIdBlock,
+                         @Value("${urlshortener.id.block.max-size:100000}") int maxIdBlock,
+                         @Value("${urlshortener.id.block.lease-interval-ms:1000}") long idLeaseIntervalMs,
+                         @Value("${urlshortener.cache.redis.ttl-seconds:86400}") int cacheTtlSeconds) {
+        this(redisClient, "id", "url:", minIdBlock, maxIdBlock, idLeaseIntervalMs, cacheTtlSeconds);
     }
 
-    public URLRepository(Jedis jedis, String idKey, String urlKey) {
-        this.jedis = jedis;
+    public URLRepository(RedisClient redisClient, String idKey, String urlKey) {
+        this(redisClient, idKey, urlKey, CACHE_TTL_SECONDS);
+    }
+
+    public URLRepository(RedisClient redisClient, String idKey, String urlKey, int cacheTtlSeconds) {
+        this(redisClient, idKey, urlKey, DEFAULT_MIN_ID_BLOCK, DEFAULT_MAX_ID_BLOCK, DEFAULT_ID_LEASE_INTERVAL_MS,
+            cacheTtlSeconds);
+    }
+
+    public URLRepository(RedisClient redisClient, String idKey, String urlKey,
+                         int minIdBlock, int maxIdBlock, long idLeaseIntervalMs, int cacheTtlSeconds) {
+        this.redisClient = redisClient;
         this.idKey = idKey;
         this.urlKey = urlKey;
+        this.cacheTtlSeconds = cacheTtlSeconds;
+        this.idLeaser = new IDRangeLeaser(size -> redisClient.execute(jedis -> jedis.incrBy(idKey, size)),
+            minIdBlock, maxIdBlock, idLeaseIntervalMs);
         checkRedisHealth();
     }
 
     private void checkRedisHealth() {
         try {
-            jedis.ping();
-            redisAvailable = true;
+            redisClient.execute(jedis -> jedis.ping());
             LOGGER.info("Redis connection healthy");
         } catch (Exception e) {
-            redisAvailable = false;
             LOGGER.warn("Redis unavailable, falling back to DB only: {}", e.getMessage());
         }
     }
 
+    /**
+     * Next ID from the locally leased block; only touches Redis when a block runs out
+     */
     public Long incrementID() {
         try {
-            Long id = jedis.incr(idKey);
-            LOGGER.info("Incrementing ID: {}", id-1);
-            return id - 1;
+            long id = idLeaser.nextId();
+            LOGGER.info("Incrementing ID: {}", id);
+            return id;
         } catch (Exception e) {
             LOGGER.error("Redis incrementID failed: {}", e.getMessage());
-            redisAvailable = false;
             // Return null to signal fallback to DB sequence
             return null;
         }
     }
 
-    public void saveUrl(String key, String longUrl) {
-        if (!redisAvailable) {
+    public void saveUrl(String shortKey, String longUrl) {
+        if (!redisClient.isAvailable()) {
             LOGGER.warn("Redis unavailable, skipping cache write");
             return;
         }
         try {
-            LOGGER.info("Saving to cache: {} at {} with TTL {}s", longUrl, key, CACHE_TTL_SECONDS);
-            jedis.hset(urlKey, key, longUrl);
-            // Set TTL on the hash key for cache expiration
-            jedis.expire(urlKey, CACHE_TTL_SECONDS);
+            LOGGER.info("Saving to cache: {} at {} with TTL {}s", longUrl, shortKey, cacheTtlSeconds);
+            redisClient.execute(jedis -> jedis.setex(urlKey + shortKey, cacheTtlSeconds, longUrl));
         } catch (Exception e) {
             LOGGER.error("Failed to save URL to cache: {}", e.getMessage());
-            redisAvailable = false;
         }
     }
 
-    public String getUrl(Long id) {
-        if (!redisAvailable) {
+    public String getUrl(String shortKey) {
+        try {
+            return lookupUrl(shortKey);
+        } catch (RedisUnavailableException e) {
             LOGGER.warn("Redis unavailable, returning null for cache miss");
             return null;
-        }
-        try {
-            LOGGER.info("Retrieving from cache at {}", id);
-            String url = jedis.hget(urlKey, "url:"+id);
-            if (url != null) {
-                LOGGER.info("Cache HIT: Retrieved {} at {}", url, id);
-            } else {
-                LOGGER.info("Cache MISS at {}", id);
-            }
-            return url;
         } catch (Exception e) {
             LOGGER.error("Failed to retrieve from cache: {}", e.getMessage());
-            redisAvailable = false;
             return null;
         }
     }
 
+    /**
+     * getUrl for callers that must tell a cache miss from a lookup Redis never answered
+     *
+     * @return the cached value, or null on a miss
+     * @throws RedisUnavailableException if the circuit is open; connection errors are rethrown
+     */
+    public String lookupUrl(String shortKey) {
+        if (!redisClient.isAvailable()) {
+            throw new RedisUnavailableException("Redis unavailable, cache not consulted");
+        }
+        LOGGER.info("Retrieving from cache at {}", shortKey);
+        String url = getAndTouch(urlKey + shortKey);
+        if (url != null) {
+            LOGGER.info("Cache HIT: Retrieved {} at {}", url, shortKey);
+        } else {
+            LOGGER.info("Cache MISS at {}", shortKey);
+        }
+        return url;
+    }
+
+    /**
+     * Non-blocking lookupUrl: runs on the Redis I/O pool, completes with null on a miss,
+     * exceptionally if Redis did not answer
+     */
+    public CompletableFuture<String> lookupUrlAsync(String shortKey) {
+        if (!redisClient.isAvailable()) {
+            CompletableFuture<String> unavailable = new CompletableFuture<>();
+            unavailable.completeExceptionally(new RedisUnavailableException("Redis unavailable, cache not consulted"));
+            return unavailable;
+        }
+        return redisClient.executeAsync(getAndTouchCommand(urlKey + shortKey));
+    }
+
+    /**
+     * Multi-key lookupUrl: one MGET (plus TTL refreshes) in a single pipelined round trip
+     *
+     * @return short key -> cached value for the hits only
+     * @throws RedisUnavailableException if the circuit is open; connection errors are rethrown
+     */
+    public Map<String, String> lookupUrls(List<String> shortKeys) {
+        Map<String, String> hits = new HashMap<>();
+        if (shortKeys.isEmpty()) {
+            return hits;
+        }
+        if (!redisClient.isAvailable()) {
+            throw new RedisUnavailableException("Redis unavailable, cache not consulted");
+        }
+        String[] keys = new String[shortKeys.size()];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = urlKey + shortKeys.get(i);
+        }
+        List<String> values = redisClient.execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Response<List<String>> response = pipeline.mget(keys);
+            for (String key : keys) {
+                pipeline.expire(key, cacheTtlSeconds);
+            }
+            pipeline.sync();
+            return response.get();
+        });
+        for (int i = 0; i < keys.length; ++i) {
+            if (values.get(i) != null) {
+                hits.put(shortKeys.get(i), values.get(i));
+            }
+        }
+        LOGGER.info("Cache multi-get: {} of {} keys hit", hits.size(), keys.length);
+        return hits;
+    }
+
     public void saveUrlHash(String hash, String shortKey) {
-        if (!redisAvailable) {
+        if (!redisClient.isAvailable()) {
             LOGGER.warn("Redis unavailable, skipping hash cache write");
             return;
         }
         try {
             LOGGER.info("Saving hash mapping to cache: {} -> {}", hash, shortKey);
-            jedis.hset("hash:", hash, shortKey);
-            jedis.expire("hash:", CACHE_TTL_SECONDS);
+            redisClient.execute(jedis -> jedis.setex(HASH_KEY_PREFIX + hash, cacheTtlSeconds, shortKey));
         } catch (Exception e) {
             LOGGER.error("Failed to save hash mapping: {}", e.getMessage());
-            redisAvailable = false;
+        }
+    }
+
+    /**
+     * Cache both directions of a mapping (url: and hash:) in a single pipelined round trip
+     */
+    public void saveMapping(String shortKey, String longUrl, String urlHash) {
+        if (!redisClient.isAvailable()) {
+            LOGGER.warn("Redis unavailable, skipping mapping cache write");
+            return;
+        }
+        try {
+            LOGGER.info("Saving mapping to cache: {} -> {} with TTL {}s", shortKey, longUrl, cacheTtlSeconds);
+            redisClient.execute(jedis -> {
+                Pipeline pipeline = jedis.pipelined();
+                pipeline.setex(urlKey + shortKey, cacheTtlSeconds, longUrl);
+                pipeline.setex(HASH_KEY_PREFIX + urlHash, cacheTtlSeconds, shortKey);
+                pipeline.sync();
+                return null;
+            });
+        } catch (Exception e) {
+            LOGGER.error("Failed to save mapping to cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cache both directions of a batch of mappings in a single pipelined round trip
+     */
+    public void saveMappings(Collection<URLMapping> mappings) {
+        if (mappings.isEmpty() || !redisClient.isAvailable()) {
+            return;
+        }
+        try {
+            redisClient.execute(jedis -> {
+                Pipeline pipeline = jedis.pipelined();
+                for (URLMapping mapping : mappings) {
+                    pipeline.setex(urlKey + mapping.getShortKey(), cacheTtlSeconds, mapping.getCacheValue());
+                    pipeline.setex(HASH_KEY_PREFIX + mapping.getUrlHash(), cacheTtlSeconds, mapping.getShortKey());
+                }
+                pipeline.sync();
+                return null;
+            });
+            LOGGER.info("Saved {} mappings to cache with TTL {}s", mappings.size(), cacheTtlSeconds);
+        } catch (Exception e) {
+            LOGGER.error("Failed to save mapping batch to cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cache a batch of url: entries in a single pipelined round trip
+     */
+    public void saveUrls(Map<String, String> urls) {
+        if (urls.isEmpty() || !redisClient.isAvailable()) {
+            return;
+        }
+        try {
+            redisClient.execute(jedis -> {
+                Pipeline pipeline = jedis.pipelined();
+                for (Map.Entry<String, String> entry : urls.entrySet()) {
+                    pipeline.setex(urlKey + entry.getKey(), cacheTtlSeconds, entry.getValue());
+                }
+                pipeline.sync();
+                return null;
+            });
+            LOGGER.info("Saved {} URLs to cache with TTL {}s", urls.size(), cacheTtlSeconds);
+        } catch (Exception e) {
+            LOGGER.error("Failed to save URL batch to cache: {}", e.getMessage());
         }
     }
 
     public String getShortKeyFromHash(String hash) {
-        if (!redisAvailable) {
+        if (!redisClient.isAvailable()) {
             LOGGER.warn("Redis unavailable, returning null for hash lookup");
             return null;
         }
         try {
             LOGGER.info("Checking cache for existing hash: {}", hash);
-            String shortKey = jedis.hget("hash:", hash);
+            String shortKey = getAndTouch(HASH_KEY_PREFIX + hash);
             if (shortKey != null) {
                 LOGGER.info("Cache HIT: Found existing short key for hash: {}", shortKey);
             } else {
@@ -120,12 +294,91 @@ public class URLRepository {
             return shortKey;
         } catch (Exception e) {
             LOGGER.error("Failed to retrieve hash from cache: {}", e.getMessage());
-            redisAvailable = false;
             return null;
         }
     }
 
+    /**
+     * GET + EXPIRE in one round trip: reading an entry extends its own TTL only
+     */
+    private String getAndTouch(String key) {
+        return redisClient.execute(getAndTouchCommand(key));
+    }
+
+    private Function<Jedis, String> getAndTouchCommand(String key) {
+        return jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Response<String> value = pipeline.get(key);
+            pipeline.expire(key, cacheTtlSeconds);
+            pipeline.sync();
+            return value.get();
+        };
+    }
+
+    /**
+     * Move entries out of the legacy single-hash layout into per-key entries
+     *
+     * Scans in batches so a large hash never blocks Redis, never overwrites a
+     * per-key entry that already exists, and removes each migrated field, so
+     * it is safe to run repeatedly and from several nodes at once.
+     */
+    @PostConstruct
+    public void migrateLegacyCache() {
+        if (!redisClient.isAvailable()) {
+            return;
+        }
+        try {
+            int urls = migrateLegacyHash(LEGACY_URL_HASH, true);
+            int hashes = migrateLegacyHash(LEGACY_HASH_HASH, false);
+            if (urls + hashes > 0) {
+                LOGGER.info("Migrated {} URL and {} hash entries to per-key cache entries", urls, hashes);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Legacy cache migration failed, will retry on next start: {}", e.getMessage());
+        }
+    }
+
+    private int migrateLegacyHash(String legacyKey, boolean urlEntries) {
+        ScanParams params = new ScanParams().count(MIGRATION_BATCH_SIZE);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        int migrated = 0;
+        do {
+            String batchCursor = cursor;
+            ScanResult<Map.Entry<String, String>> batch = redisClient.execute(jedis -> {
+                ScanResult<Map.Entry<String, String>> scanned = jedis.hscan(legacyKey, batchCursor, params);
+                List<String> fields = new ArrayList<>();
+                Pipeline pipeline = jedis.pipelined();
+                for (Map.Entry<String, String> entry : scanned.getResult()) {
+                    String key = urlEntries ? urlKey + legacyShortKey(entry.getKey()) : HASH_KEY_PREFIX + entry.getKey();
+                    pipeline.set(key, entry.getValue(), "NX", "EX", cacheTtlSeconds);
+                    fields.add(entry.getKey());
+                }
+                if (!fields.isEmpty()) {
+                    pipeline.hdel(legacyKey, fields.toArray(new String[0]));
+                }
+                pipeline.sync();
+                return scanned;
+            });
+            cursor = batch.getStringCursor();
+            migrated += batch.getResult().size();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return migrated;
+    }
+
+    /**
+     * Legacy URL fields were "url:{numericId}"
+     */
+    private static String legacyShortKey(String field) {
+        long id = Long.parseLong(field.substring(field.lastIndexOf(':') + 1));
+        return IDConverter.createUniqueID(id);
+    }
+
     public boolean isRedisAvailable() {
-        return redisAvailable;
+        return redisClient.isAvailable();
+    }
+
+    @PreDestroy
+    public void close() {
+        idLeaser.close();
     }
 }
@@ -1,17 +1,39 @@
 package urlshortener.app.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import urlshortener.app.model.ClickRollup;
+import urlshortener.app.model.ClickRollup.Granularity;
 import urlshortener.app.model.URLAnalytics;
+import urlshortener.app.repository.ClickDelta;
+import urlshortener.app.repository.RedisClient;
 import urlshortener.app.repository.URLAnalyticsRepository;
 
-import java.time.LocalDate;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Analytics Service implementing hybrid Redis + DB pattern
@@ -19,19 +41,34 @@ import java.util.Optional;
  * DESIGN DECISIONS:
  * 
  * 1. Redis for Hot Path (Atomic Increments)
- *    - Uses INCR for atomic counter updates (O(1), thread-safe)
+ *    - Uses HINCRBY for atomic counter updates (O(1), thread-safe)
  *    - Stores in-memory for ultra-fast increments on redirects
- *    - Key format: "analytics:{shortKey}:clicks"
+ *    - Key format: "analytics:{shortKey}:minutes", a hash keyed by base-36 epoch minute
+ *      holding the clicks not yet persisted, plus "analytics:{shortKey}:lastAccess"
  * 
  * 2. Database for Durability (Source of Truth)
- *    - Periodic sync from Redis to DB (async background job in production)
- *    - Current implementation: sync on stats read (lazy persistence)
- *    - Provides historical data, aggregations
+ *    - Every Redis write adds the clicks to the key's per-minute buckets and marks the key dirty
+ *    - AnalyticsSyncService persists the buckets of dirty keys in the background, into the
+ *      totals and into hourly and daily rollups
+ *    - Provides historical data, aggregations; time series are served from the rollups
  * 
- * 3. Eventual Consistency Model
+ * 3. Off the Redirect Path
+ *    - recordClickAsync bumps a per-key striped counter (LongAdder): no I/O, no shared
+ *      cache line between cores even for one viral key
+ *    - At most max-pending-keys keys have a counter at a time; clicks on further new
+ *      keys are dropped and counted in urlshortener.analytics.clicks.dropped
+ *    - Every flush-interval-ms the deltas are written with one pipeline (HINCRBY + one
+ *      last-access SET per key); the DB fallback is one batch per flush
+ *    - Last access is therefore accurate to the flush interval
+ *    - A counter only moves past clicks that were written; after a failed flush
+ *      (Redis and DB both down) they are retried with the next one
+ *    - Idle counters are retired from the map but still flushed until one finds
+ *      nothing new in them; close() writes whatever is left
+ * 
+ * 4. Eventual Consistency Model
  *    - Redis counters may be ahead of DB
  *    - Acceptable tradeoff: fast writes > immediate consistency
- *    - Stats endpoint returns latest from Redis + DB baseline
+ *    - Stats endpoint returns DB baseline + clicks still pending in Redis, and never writes
  * 
  * INTERVIEW DISCUSSION POINTS:
  * - Why not just DB? → Too slow for high-traffic redirects
@@ -43,34 +80,93 @@ import java.util.Optional;
 public class AnalyticsService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AnalyticsService.class);
     
-    private final Jedis jedis;
+    private final RedisClient redisClient;
     private final URLAnalyticsRepository analyticsRepository;
-    private boolean redisAvailable = true;
+    private final ConcurrentHashMap<String, ClickCounter> clickCounters = new ConcurrentHashMap<>();
+    private final List<ClickCounter> retiredCounters = new ArrayList<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService clickFlusher;
+    private final Counter droppedClicks;
+    private final DistributionSummary flushBatchSize;
+    private final int maxPendingKeys;
+    private volatile boolean closed;
+    
+    /**
+     * Clicks for one key since its counter was created
+     *
+     * Producers only ever add to the striped LongAdder; the flusher never
+     * resets it, it remembers how much it has already written and writes the
+     * difference, so an increment racing a flush (or a failed flush) lands in
+     * the next one.
+     */
+    private static final class ClickCounter {
+        private final String shortKey;
+        private final LongAdder clicks = new LongAdder();
+        // Flusher-owned (guarded by flushLock)
+        private long flushed;
+        private int idleFlushes;
+        
+        private ClickCounter(String shortKey) {
+            this.shortKey = shortKey;
+        }
+    }
     
-    private static final String ANALYTICS_CLICKS_PREFIX = "analytics:";
-    private static final String CLICKS_SUFFIX = ":clicks";
-    private static final String LAST_ACCESS_SUFFIX = ":lastAccess";
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    private static final int DEFAULT_MAX_PENDING_KEYS = 100000;
+    // Flushes without a click before a key's counter is dropped from the map
+    private static final int IDLE_FLUSHES_BEFORE_RETIRE = 3;
+    static final String ANALYTICS_CLICKS_PREFIX = "analytics:";
+    static final String LAST_ACCESS_SUFFIX = ":lastAccess";
+    // Clicks in Redis not yet persisted to the DB, per minute, taken by AnalyticsSyncService
+    static final String MINUTES_SUFFIX = ":minutes";
+    // Keys with pending clicks
+    static final String DIRTY_KEYS = "analytics:dirty";
+    static final long MINUTE_MS = 60000L;
+    // Widest time series answered in one call
+    private static final int MAX_TIME_SERIES_POINTS = 10000;
     
-    @Autowired
-    public AnalyticsService(URLAnalyticsRepository analyticsRepository) {
-        this.analyticsRepository = analyticsRepository;
-        this.jedis = new Jedis();
-        checkRedisHealth();
+    public AnalyticsService(RedisClient redisClient, URLAnalyticsRepository analyticsRepository) {
+        this(redisClient, analyticsRepository, new SimpleMeterRegistry(), DEFAULT_FLUSH_INTERVAL_MS);
+    }
+    
+    public AnalyticsService(RedisClient redisClient, URLAnalyticsRepository analyticsRepository,
+                            MeterRegistry meterRegistry, long flushIntervalMs) {
+        this(redisClient, analyticsRepository, meterRegistry, flushIntervalMs, DEFAULT_MAX_PENDING_KEYS);
     }
     
-    public AnalyticsService(Jedis jedis, URLAnalyticsRepository analyticsRepository) {
-        this.jedis = jedis;
+    @Autowired
+    public AnalyticsService(RedisClient redisClient, URLAnalyticsRepository analyticsRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${urlshortener.analytics.flush-interval-ms:1000}") long flushIntervalMs,
+                            @Value("${urlshortener.analytics.max-pending-keys:100000}") int maxPendingKeys) {
+        this.redisClient = redisClient;
         this.analyticsRepository = analyticsRepository;
+        this.maxPendingKeys = maxPendingKeys;
+        this.droppedClicks = Counter.builder("urlshortener.analytics.clicks.dropped")
+            .description("Clicks not recorded: after the service was closed, or for a new key while "
+                + "max-pending-keys keys already have a counter")
+            .register(meterRegistry);
+        this.flushBatchSize = DistributionSummary.builder("urlshortener.analytics.flush.keys")
+            .description("Keys written per click flush")
+            .register(meterRegistry);
+        Gauge.builder("urlshortener.analytics.counters", clickCounters, Map::size)
+            .description("Keys with a live click counter")
+            .register(meterRegistry);
         checkRedisHealth();
+        this.clickFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        clickFlusher.scheduleWithFixedDelay(this::flushClicksSafely, flushIntervalMs, flushIntervalMs,
+            TimeUnit.MILLISECONDS);
     }
     
     private void checkRedisHealth() {
         try {
-            jedis.ping();
-            redisAvailable = true;
+            redisClient.execute(jedis -> jedis.ping());
             LOGGER.info("Analytics: Redis connection healthy");
         } catch (Exception e) {
-            redisAvailable = false;
             LOGGER.warn("Analytics: Redis unavailable, will use DB only: {}", e.getMessage());
         }
     }
@@ -85,58 +181,174 @@ public class AnalyticsService {
         long timestamp = System.currentTimeMillis();
         
         // Fast path: Redis atomic increment
-        if (redisAvailable) {
+        if (redisClient.isAvailable()) {
             try {
-                String clicksKey = ANALYTICS_CLICKS_PREFIX + shortKey + CLICKS_SUFFIX;
-                String lastAccessKey = ANALYTICS_CLICKS_PREFIX + shortKey + LAST_ACCESS_SUFFIX;
+                String prefix = ANALYTICS_CLICKS_PREFIX + shortKey;
                 
-                Long newCount = jedis.incr(clicksKey);
-                jedis.set(lastAccessKey, String.valueOf(timestamp));
+                // All writes in one pipelined round trip
+                Long minuteCount = redisClient.execute(jedis -> {
+                    Pipeline pipeline = jedis.pipelined();
+                    Response<Long> count = pipeline.hincrBy(prefix + MINUTES_SUFFIX, minuteField(timestamp), 1);
+                    pipeline.set(prefix + LAST_ACCESS_SUFFIX, String.valueOf(timestamp));
+                    pipeline.sadd(DIRTY_KEYS, shortKey);
+                    pipeline.sync();
+                    return count.get();
+                });
                 
-                LOGGER.info("[ANALYTICS] Recorded click for {} in Redis: count={}", shortKey, newCount);
+                LOGGER.info("[ANALYTICS] Recorded click for {} in Redis: pending this minute={}", shortKey, minuteCount);
                 return;
             } catch (Exception e) {
                 LOGGER.error("Failed to record click in Redis: {}", e.getMessage());
-                redisAvailable = false;
                 // Fall through to DB recording
             }
         }
         
         // Fallback: Direct DB write (slower but reliable)
         LOGGER.info("[ANALYTICS] Redis unavailable, recording click in DB for {}", shortKey);
-        recordClickInDB(shortKey, timestamp);
+        recordClickInDB(shortKey, 1, timestamp);
     }
     
     /**
-     * Direct DB recording (fallback when Redis is down)
+     * Record a click without waiting for it: one striped increment, no I/O, no allocation for known keys
+     * 
+     * @param shortKey The short URL identifier
+     */
+    public void recordClickAsync(String shortKey) {
+        if (closed) {
+            droppedClicks.increment();
+            return;
+        }
+        ClickCounter counter = clickCounters.get(shortKey);
+        if (counter == null) {
+            // Keys already counting keep counting; a flood of distinct keys cannot grow the map past the cap
+            if (clickCounters.size() >= maxPendingKeys) {
+                droppedClicks.increment();
+                return;
+            }
+            counter = clickCounters.computeIfAbsent(shortKey, ClickCounter::new);
+        }
+        counter.clicks.increment();
+    }
+    
+    private void flushClicksSafely() {
+        try {
+            flushClicks();
+        } catch (RuntimeException e) {
+            LOGGER.error("Click flush failed: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Write every counter's clicks since the last flush: one pipelined HINCRBY
+     * plus one last-access SET per key, or one DB update per key if Redis is down
+     * 
+     * Safe to call concurrently with clicks and with other flushes.
      */
-    private void recordClickInDB(String shortKey, long timestamp) {
+    void flushClicks() {
+        flushLock.lock();
         try {
-            Optional<URLAnalytics> existing = analyticsRepository.findById(shortKey);
-            URLAnalytics analytics;
-            
-            if (existing.isPresent()) {
-                analytics = existing.get();
-                analytics.setTotalClicks(analytics.getTotalClicks() + 1);
-                analytics.setLastAccessedAt(timestamp);
-                updateDailyClicks(analytics);
-            } else {
-                analytics = new URLAnalytics(shortKey);
-                analytics.setTotalClicks(1L);
-                analytics.setLastAccessedAt(timestamp);
-                analytics.setClicksToday(1L);
+            long now = System.currentTimeMillis();
+            Map<ClickCounter, Long> deltas = new LinkedHashMap<>();
+            // Retired counters: pick up increments from callers that still held them
+            for (ClickCounter counter : retiredCounters) {
+                collectDelta(counter, deltas);
+            }
+            for (ClickCounter counter : clickCounters.values()) {
+                if (collectDelta(counter, deltas)) {
+                    counter.idleFlushes = 0;
+                } else if (++counter.idleFlushes >= IDLE_FLUSHES_BEFORE_RETIRE
+                        && clickCounters.remove(counter.shortKey, counter)) {
+                    retiredCounters.add(counter);
+                }
+            }
+            if (!deltas.isEmpty()) {
+                if (!writeClicks(deltas, now)) {
+                    // Nothing advanced: the same clicks (plus newer ones) go out with the next flush
+                    return;
+                }
+                for (Map.Entry<ClickCounter, Long> entry : deltas.entrySet()) {
+                    entry.getKey().flushed += entry.getValue();
+                }
+                flushBatchSize.record(deltas.size());
+            }
+            // A retired counter is dropped once a flush finds it quiescent
+            retiredCounters.removeIf(counter -> !deltas.containsKey(counter));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private static boolean collectDelta(ClickCounter counter, Map<ClickCounter, Long> deltas) {
+        long delta = counter.clicks.sum() - counter.flushed;
+        if (delta <= 0) {
+            return false;
+        }
+        deltas.put(counter, delta);
+        return true;
+    }
+    
+    /**
+     * @return whether the clicks were written, to Redis or else to the DB
+     */
+    private boolean writeClicks(Map<ClickCounter, Long> deltas, long timestamp) {
+        if (redisClient.isAvailable()) {
+            try {
+                redisClient.execute(jedis -> {
+                    Pipeline pipeline = jedis.pipelined();
+                    String lastAccess = String.valueOf(timestamp);
+                    String minute = minuteField(timestamp);
+                    String[] dirty = new String[deltas.size()];
+                    int i = 0;
+                    for (Map.Entry<ClickCounter, Long> entry : deltas.entrySet()) {
+                        String prefix = ANALYTICS_CLICKS_PREFIX + entry.getKey().shortKey;
+                        pipeline.hincrBy(prefix + MINUTES_SUFFIX, minute, entry.getValue());
+                        pipeline.set(prefix + LAST_ACCESS_SUFFIX, lastAccess);
+                        dirty[i++] = entry.getKey().shortKey;
+                    }
+                    pipeline.sadd(DIRTY_KEYS, dirty);
+                    pipeline.sync();
+                    return null;
+                });
+                LOGGER.info("[ANALYTICS] Flushed clicks for {} keys to Redis", deltas.size());
+                return true;
+            } catch (Exception e) {
+                LOGGER.error("Failed to flush clicks to Redis: {}", e.getMessage());
+                // Fall through to DB recording
             }
-            
-            analyticsRepository.save(analytics);
-            LOGGER.info("[ANALYTICS] Recorded click in DB for {}: total={}", shortKey, analytics.getTotalClicks());
+        }
+        List<ClickDelta> dbDeltas = new ArrayList<>(deltas.size());
+        for (Map.Entry<ClickCounter, Long> entry : deltas.entrySet()) {
+            dbDeltas.add(new ClickDelta(entry.getKey().shortKey, entry.getValue(), timestamp));
+        }
+        return recordClicksInDB(dbDeltas);
+    }
+    
+    /**
+     * Direct DB recording (fallback when Redis is down)
+     */
+    private void recordClickInDB(String shortKey, long clicks, long timestamp) {
+        recordClicksInDB(Collections.singletonList(new ClickDelta(shortKey, clicks, timestamp)));
+    }
+    
+    /**
+     * Add clicks for many keys in one JDBC batch, increments applied in SQL
+     *
+     * @return whether the batch was written; on failure none of it was
+     */
+    private boolean recordClicksInDB(List<ClickDelta> deltas) {
+        try {
+            analyticsRepository.addClicks(deltas);
+            LOGGER.info("[ANALYTICS] Recorded clicks in DB for {} keys", deltas.size());
+            return true;
         } catch (Exception e) {
-            LOGGER.error("Failed to record click in DB: {}", e.getMessage(), e);
+            LOGGER.error("Failed to record clicks in DB: {}", e.getMessage(), e);
+            return false;
         }
     }
     
     /**
      * Get analytics stats for a short URL
-     * Syncs Redis counters to DB (lazy persistence)
+     * Read-only: DB baseline plus the clicks still pending in Redis
      * 
      * @param shortKey The short URL identifier
      * @return Analytics statistics
@@ -150,41 +362,30 @@ public class AnalyticsService {
         
         long totalClicks = dbAnalytics.getTotalClicks();
         long lastAccessedAt = dbAnalytics.getLastAccessedAt();
+        boolean readFromRedis = false;
         
-        // Step 2: Check Redis for latest counts (eventual consistency)
-        if (redisAvailable) {
+        // Step 2: Add what AnalyticsSyncService has not persisted yet (one round trip)
+        if (redisClient.isAvailable()) {
             try {
-                String clicksKey = ANALYTICS_CLICKS_PREFIX + shortKey + CLICKS_SUFFIX;
-                String lastAccessKey = ANALYTICS_CLICKS_PREFIX + shortKey + LAST_ACCESS_SUFFIX;
-                
-                String redisClicks = jedis.get(clicksKey);
-                String redisLastAccess = jedis.get(lastAccessKey);
+                String prefix = ANALYTICS_CLICKS_PREFIX + shortKey;
+                List<Object> replies = redisClient.execute(jedis -> {
+                    Pipeline pipeline = jedis.pipelined();
+                    pipeline.hgetAll(prefix + MINUTES_SUFFIX);
+                    pipeline.get(prefix + LAST_ACCESS_SUFFIX);
+                    return pipeline.syncAndReturnAll();
+                });
+                readFromRedis = true;
                 
-                if (redisClicks != null) {
-                    long redisCount = Long.parseLong(redisClicks);
-                    
-                    // Sync to DB if Redis has newer data
-                    if (redisCount > totalClicks) {
-                        LOGGER.info("[ANALYTICS] Syncing Redis to DB: {} clicks", redisCount);
-                        dbAnalytics.setTotalClicks(redisCount);
-                        totalClicks = redisCount;
-                    }
+                @SuppressWarnings("unchecked")
+                Map<String, String> minutes = (Map<String, String>) replies.get(0);
+                for (String clicks : minutes.values()) {
+                    totalClicks += Long.parseLong(clicks);
                 }
-                
-                if (redisLastAccess != null) {
-                    long redisTimestamp = Long.parseLong(redisLastAccess);
-                    if (redisTimestamp > lastAccessedAt) {
-                        dbAnalytics.setLastAccessedAt(redisTimestamp);
-                        lastAccessedAt = redisTimestamp;
-                    }
+                if (replies.get(1) != null) {
+                    lastAccessedAt = Math.max(lastAccessedAt, Long.parseLong((String) replies.get(1)));
                 }
-                
-                // Persist synced data
-                analyticsRepository.save(dbAnalytics);
-                
             } catch (Exception e) {
-                LOGGER.error("Failed to sync Redis analytics: {}", e.getMessage());
-                redisAvailable = false;
+                LOGGER.error("Failed to read pending Redis analytics: {}", e.getMessage());
             }
         }
         
@@ -197,7 +398,7 @@ public class AnalyticsService {
         stats.put("createdAt", dbAnalytics.getCreatedAt());
         stats.put("createdDate", formatTimestamp(dbAnalytics.getCreatedAt()));
         stats.put("clicksToday", dbAnalytics.getClicksToday());
-        stats.put("dataSource", redisAvailable ? "redis+db" : "db-only");
+        stats.put("dataSource", readFromRedis ? "redis+db" : "db-only");
         
         LOGGER.info("[ANALYTICS] Stats for {}: totalClicks={}, source={}", 
             shortKey, totalClicks, stats.get("dataSource"));
@@ -205,31 +406,90 @@ public class AnalyticsService {
         return stats;
     }
     
+    /**
+     * Clicks per hour or day, read from the rollups without touching raw clicks
+     * Buckets are UTC and run from the one holding from up to to (exclusive); empty
+     * buckets are returned with 0 clicks. Clicks appear once AnalyticsSyncService has
+     * synced them.
+     * 
+     * @throws IllegalArgumentException unless 0 <= from < to <= now + one bucket, or if the
+     *         range needs too many buckets
+     */
+    public Map<String, Object> getTimeSeries(String shortKey, long from, long to, Granularity granularity) {
+        long step = granularity.getMillis();
+        if (from < 0) {
+            throw new IllegalArgumentException("'from' must not be negative");
+        }
+        if (to <= from) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        // Keeps every bucket start, and the arithmetic on it, far from overflowing
+        if (to > System.currentTimeMillis() + step) {
+            throw new IllegalArgumentException("'to' must not be more than one bucket in the future");
+        }
+        long start = granularity.bucketStart(from);
+        long points = (to - start - 1) / step + 1;
+        if (points > MAX_TIME_SERIES_POINTS) {
+            throw new IllegalArgumentException("Range spans " + points + " buckets, at most "
+                + MAX_TIME_SERIES_POINTS + " allowed");
+        }
+        LOGGER.info("[ANALYTICS] Fetching {} time series for {}: {} buckets", granularity, shortKey, points);
+        
+        Map<Long, Long> clicksByBucket = new HashMap<>();
+        for (ClickRollup rollup : analyticsRepository.findRollups(shortKey, granularity, start, to)) {
+            clicksByBucket.put(rollup.getBucketStart(), rollup.getClicks());
+        }
+        List<Map<String, Object>> series = new ArrayList<>((int) points);
+        long totalClicks = 0;
+        for (int i = 0; i < points; i++) {
+            long bucket = start + i * step;
+            long clicks = clicksByBucket.getOrDefault(bucket, 0L);
+            totalClicks += clicks;
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("start", bucket);
+            point.put("clicks", clicks);
+            series.add(point);
+        }
+        
+        Map<String, Object> timeSeries = new LinkedHashMap<>();
+        timeSeries.put("shortKey", shortKey);
+        timeSeries.put("granularity", granularity.name().toLowerCase(Locale.ROOT));
+        timeSeries.put("from", start);
+        timeSeries.put("to", to);
+        timeSeries.put("totalClicks", totalClicks);
+        timeSeries.put("points", series);
+        return timeSeries;
+    }
+    
+    /**
+     * Hash field of the minute holding the timestamp: the epoch minute in base 36 (5 chars until 2084)
+     */
+    static String minuteField(long timestamp) {
+        return Long.toString(timestamp / MINUTE_MS, Character.MAX_RADIX);
+    }
+    
+    /**
+     * Epoch millis at which the minute of a minuteField starts
+     */
+    static long minuteStart(String field) {
+        return Long.parseLong(field, Character.MAX_RADIX) * MINUTE_MS;
+    }
+    
     /**
      * Initialize analytics for a new short URL
+     *
+     * A key that already has analytics (the long URL was shortened before) keeps them.
      */
     public void initializeAnalytics(String shortKey) {
-        URLAnalytics analytics = new URLAnalytics(shortKey);
-        analyticsRepository.save(analytics);
-        LOGGER.info("[ANALYTICS] Initialized analytics for {}", shortKey);
+        initializeAnalytics(Collections.singletonList(shortKey));
     }
-    
+
     /**
-     * Update daily click aggregation
+     * Initialize analytics for many short URLs with one JDBC batch
      */
-    private void updateDailyClicks(URLAnalytics analytics) {
-        String today = LocalDate.now().toString();
-        String lastDate = analytics.getLastAggregationDate();
-        
-        if (!today.equals(lastDate)) {
-            // New day - reset daily counter
-            analytics.setClicksToday(1L);
-            analytics.setLastAggregationDate(today);
-            LOGGER.info("[ANALYTICS] Reset daily counter for {}", analytics.getShortKey());
-        } else {
-            // Same day - increment
-            analytics.setClicksToday(analytics.getClicksToday() + 1);
-        }
+    public void initializeAnalytics(Collection<String> shortKeys) {
+        analyticsRepository.createMissing(shortKeys);
+        LOGGER.info("[ANALYTICS] Initialized analytics for {} keys", shortKeys.size());
     }
     
     private String formatTimestamp(long timestamp) {
@@ -238,4 +498,19 @@ public class AnalyticsService {
         }
         return new java.util.Date(timestamp).toString();
     }
+    
+    /**
+     * Stop accepting clicks and write whatever has not been flushed yet
+     */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        clickFlusher.shutdown();
+        try {
+            clickFlusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushClicksSafely();
+    }
 }
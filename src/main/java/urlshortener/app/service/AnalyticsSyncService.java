@@ -0,0 +1,346 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import urlshortener.app.repository.ClickDelta;
+import urlshortener.app.repository.RedisClient;
+import urlshortener.app.repository.URLAnalyticsRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists Redis click counters to the database in the background
+ *
+ * DESIGN DECISIONS:
+ *
+ * 1. Dirty set instead of a key scan
+ *    - Every click write also adds the key to the "analytics:dirty" set and
+ *      bumps its minute in "analytics:{shortKey}:minutes", the clicks not yet in the DB
+ *    - The sync only ever touches keys that were clicked since their last sync,
+ *      including keys nobody asks stats for
+ *
+ * 2. Deltas, taken atomically
+ *    - A run ("{startMillis}-{uuid}") claims keys by adding them to its own set
+ *      "analytics:run:{run}", registered in "analytics:runs", before removing them
+ *      from the dirty set; RENAME then moves each key's whole minute hash to
+ *      "analytics:{shortKey}:minutes:sync:{run}", owned by this run alone
+ *    - A click racing the sync starts a fresh hash and re-marks the key dirty,
+ *      so it is picked up by the next run instead of being lost
+ *    - Two runs (on two nodes, or overlapping on one) never read the same clicks:
+ *      whichever renames first takes them, the other gets only newer ones
+ *    - The run is dropped once the DB write commits; if it fails its clicks are
+ *      added back to the live hashes and the keys re-marked
+ *
+ * 3. Crash recovery
+ *    - Every key is always in the dirty set or in a registered run's set, so a
+ *      node that dies mid-run leaves a record of what it had claimed
+ *    - Each sync first restores runs older than sync-orphan-age-ms the same way as
+ *      a failed write: taken clicks go back to the live hashes, keys are re-marked
+ *    - Removing the run from "analytics:runs" is the claim, so two nodes never
+ *      restore the same run; a node that dies between the DB commit and dropping
+ *      the run has its batch counted twice rather than lost
+ *
+ * 4. Batches
+ *    - Keys are claimed batch-size at a time: one pipeline to claim them and take
+ *      their buckets, one transaction adding them in SQL, to the totals and to the
+ *      hourly and daily rollups, and one pipeline to drop the run
+ *
+ * The dirty set lives in Redis, so keys left unsynced when a node stops are
+ * synced by whichever node runs next.
+ *
+ * Metrics:
+ *   urlshortener.analytics.sync              time per sync run
+ *   urlshortener.analytics.sync.batch.keys   keys persisted per batch
+ *   urlshortener.analytics.sync.lag          seconds since the last completed sync run
+ *   urlshortener.analytics.sync.backlog      dirty keys left after the last run
+ */
+@Service
+public class AnalyticsSyncService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalyticsSyncService.class);
+    // Appended to the minutes key, plus the run id, for the buckets a run has taken
+    private static final String SYNC_SUFFIX = ":sync:";
+    // Runs in flight (or orphaned), and per run the keys it claimed
+    static final String SYNC_RUNS = "analytics:runs";
+    static final String RUN_KEYS_PREFIX = "analytics:run:";
+
+    private final RedisClient redisClient;
+    private final URLAnalyticsRepository analyticsRepository;
+    private final int batchSize;
+    private final long orphanAgeMs;
+    private final ScheduledExecutorService syncExecutor;
+    private final Timer syncTimer;
+    private final DistributionSummary syncBatchSize;
+    private final AtomicLong lastSyncAt = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong backlog = new AtomicLong();
+
+    @Autowired
+    public AnalyticsSyncService(RedisClient redisClient, URLAnalyticsRepository analyticsRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${urlshortener.analytics.sync-interval-ms:10000}") long syncIntervalMs,
+                                @Value("${urlshortener.analytics.sync-batch-size:500}") int batchSize,
+                                @Value("${urlshortener.analytics.sync-orphan-age-ms:600000}") long orphanAgeMs) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Sync batch size must be positive: " + batchSize);
+        }
+        this.redisClient = redisClient;
+        this.analyticsRepository = analyticsRepository;
+        this.batchSize = batchSize;
+        this.orphanAgeMs = orphanAgeMs;
+        this.syncTimer = Timer.builder("urlshortener.analytics.sync")
+            .description("Time per Redis to DB analytics sync run")
+            .register(meterRegistry);
+        this.syncBatchSize = DistributionSummary.builder("urlshortener.analytics.sync.batch.keys")
+            .description("Keys persisted per sync batch")
+            .register(meterRegistry);
+        Gauge.builder("urlshortener.analytics.sync.lag", lastSyncAt,
+                last -> (System.currentTimeMillis() - last.get()) / 1000.0)
+            .description("Seconds since the last completed sync run")
+            .register(meterRegistry);
+        Gauge.builder("urlshortener.analytics.sync.backlog", backlog, AtomicLong::get)
+            .description("Dirty keys left after the last sync run")
+            .register(meterRegistry);
+        this.syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::syncSafely, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void syncSafely() {
+        try {
+            syncDirtyKeys();
+        } catch (Exception e) {
+            LOGGER.error("Analytics sync failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Persist the pending clicks of every dirty key, batch by batch, until the dirty set is drained
+     *
+     * @return number of keys persisted
+     */
+    int syncDirtyKeys() {
+        if (!redisClient.isAvailable()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        recoverOrphanedRuns();
+        int synced = 0;
+        List<String> keys;
+        do {
+            keys = redisClient.execute(jedis -> jedis.srandmember(AnalyticsService.DIRTY_KEYS, batchSize));
+            if (!keys.isEmpty()) {
+                synced += syncBatch(keys);
+            }
+        } while (keys.size() == batchSize);
+        backlog.set(redisClient.execute(jedis -> jedis.scard(AnalyticsService.DIRTY_KEYS)));
+        lastSyncAt.set(System.currentTimeMillis());
+        syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (synced > 0) {
+            LOGGER.info("[ANALYTICS] Synced {} keys from Redis to DB", synced);
+        }
+        return synced;
+    }
+
+    private int syncBatch(List<String> keys) {
+        String runId = System.currentTimeMillis() + "-" + UUID.randomUUID();
+        List<ClickDelta> pending = takePending(runId, keys);
+        if (!pending.isEmpty()) {
+            try {
+                analyticsRepository.addClicks(pending);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to persist {} analytics buckets, re-marking them dirty: {}",
+                    pending.size(), e.getMessage());
+                try {
+                    restoreRun(runId, keys);
+                } catch (Exception restoreFailure) {
+                    // The run stays registered and is restored once it is orphan-age old
+                    LOGGER.error("Failed to restore run {}: {}", runId, restoreFailure.getMessage());
+                }
+                throw e;
+            }
+        }
+        try {
+            dropRun(runId, keys);
+        } catch (Exception e) {
+            LOGGER.error("Failed to drop sync run {} after persisting it: {}", runId, e.getMessage());
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        int syncedKeys = (int) pending.stream().map(ClickDelta::getShortKey).distinct().count();
+        syncBatchSize.record(syncedKeys);
+        return syncedKeys;
+    }
+
+    /**
+     * Claim the keys and take their minute buckets in one pipeline: register the run
+     * and its keys, drop them from the dirty set, then RENAME each hash to this run's
+     * taken key and read it (with the key's last access time)
+     *
+     * Redis runs a pipeline in order, so whatever prefix of it ran before a crash,
+     * every key is still in the dirty set or in the run's set. RENAME is atomic, so
+     * every click lands either in the taken hash or in the fresh live one, never in
+     * both and never in neither.
+     *
+     * @return one delta per key and minute with clicks to persist
+     */
+    private List<ClickDelta> takePending(String runId, List<String> keys) {
+        String takenSuffix = takenSuffix(runId);
+        String[] claimed = keys.toArray(new String[0]);
+        List<Response<Map<String, String>>> buckets = new ArrayList<>(keys.size());
+        List<Response<String>> lastAccesses = new ArrayList<>(keys.size());
+        redisClient.execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.sadd(SYNC_RUNS, runId);
+            pipeline.sadd(RUN_KEYS_PREFIX + runId, claimed);
+            pipeline.srem(AnalyticsService.DIRTY_KEYS, claimed);
+            for (String key : keys) {
+                String prefix = AnalyticsService.ANALYTICS_CLICKS_PREFIX + key;
+                // Fails harmlessly (no such key) for a key without pending clicks; its read is then empty
+                pipeline.rename(prefix + AnalyticsService.MINUTES_SUFFIX, prefix + takenSuffix);
+                buckets.add(pipeline.hgetAll(prefix + takenSuffix));
+                lastAccesses.add(pipeline.get(prefix + AnalyticsService.LAST_ACCESS_SUFFIX));
+            }
+            pipeline.sync();
+            return null;
+        });
+
+        List<ClickDelta> pending = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            long lastAccess = parseLong(lastAccesses.get(i).get());
+            for (Map.Entry<String, String> bucket : buckets.get(i).get().entrySet()) {
+                long minuteStart = AnalyticsService.minuteStart(bucket.getKey());
+                long clicks = parseLong(bucket.getValue());
+                if (clicks > 0) {
+                    // Timestamped inside its own minute, at the last access if that falls in it
+                    long timestamp = Math.max(minuteStart,
+                        Math.min(lastAccess, minuteStart + AnalyticsService.MINUTE_MS - 1));
+                    pending.add(new ClickDelta(keys.get(i), clicks, timestamp));
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Restore the runs that have been registered for longer than sync-orphan-age-ms:
+     * their node died (or lost Redis) between claiming keys and dropping the run
+     */
+    void recoverOrphanedRuns() {
+        long cutoff = System.currentTimeMillis() - orphanAgeMs;
+        for (String runId : redisClient.execute(jedis -> jedis.smembers(SYNC_RUNS))) {
+            if (runStart(runId) > cutoff) {
+                continue;
+            }
+            // Whoever removes the run owns its recovery
+            if (redisClient.execute(jedis -> jedis.srem(SYNC_RUNS, runId)) == 0) {
+                continue;
+            }
+            List<String> keys = new ArrayList<>(redisClient.execute(jedis -> jedis.smembers(RUN_KEYS_PREFIX + runId)));
+            restoreRun(runId, keys);
+            LOGGER.warn("[ANALYTICS] Restored orphaned sync run {} with {} keys", runId, keys.size());
+        }
+    }
+
+    /**
+     * Add a run's taken clicks back to the live buckets, re-mark its keys and drop the run, in one pipeline
+     */
+    private void restoreRun(String runId, List<String> keys) {
+        String[] taken = takenKeys(runId, keys);
+        List<Response<Map<String, String>>> buckets = new ArrayList<>(taken.length);
+        redisClient.execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            for (String takenKey : taken) {
+                buckets.add(pipeline.hgetAll(takenKey));
+            }
+            pipeline.sync();
+            return null;
+        });
+        redisClient.execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < taken.length; i++) {
+                String live = AnalyticsService.ANALYTICS_CLICKS_PREFIX + keys.get(i) + AnalyticsService.MINUTES_SUFFIX;
+                for (Map.Entry<String, String> bucket : buckets.get(i).get().entrySet()) {
+                    pipeline.hincrBy(live, bucket.getKey(), parseLong(bucket.getValue()));
+                }
+            }
+            if (!keys.isEmpty()) {
+                pipeline.sadd(AnalyticsService.DIRTY_KEYS, keys.toArray(new String[0]));
+            }
+            addDropRun(pipeline, runId, taken);
+            pipeline.sync();
+            return null;
+        });
+    }
+
+    /**
+     * Forget a run whose clicks are persisted; unregistered first, so a failure part way never restores it
+     */
+    private void dropRun(String runId, List<String> keys) {
+        String[] taken = takenKeys(runId, keys);
+        redisClient.execute(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            addDropRun(pipeline, runId, taken);
+            pipeline.sync();
+            return null;
+        });
+    }
+
+    private static void addDropRun(Pipeline pipeline, String runId, String[] taken) {
+        pipeline.srem(SYNC_RUNS, runId);
+        pipeline.del(RUN_KEYS_PREFIX + runId);
+        if (taken.length > 0) {
+            pipeline.del(taken);
+        }
+    }
+
+    private static String takenSuffix(String runId) {
+        return AnalyticsService.MINUTES_SUFFIX + SYNC_SUFFIX + runId;
+    }
+
+    private static String[] takenKeys(String runId, List<String> keys) {
+        String takenSuffix = takenSuffix(runId);
+        String[] taken = new String[keys.size()];
+        for (int i = 0; i < taken.length; i++) {
+            taken[i] = AnalyticsService.ANALYTICS_CLICKS_PREFIX + keys.get(i) + takenSuffix;
+        }
+        return taken;
+    }
+
+    private static long runStart(String runId) {
+        return Long.parseLong(runId.substring(0, runId.indexOf('-')));
+    }
+
+    private static long parseLong(String value) {
+        return value == null ? 0L : Long.parseLong(value);
+    }
+
+    @PreDestroy
+    public void close() {
+        syncExecutor.shutdown();
+        try {
+            syncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
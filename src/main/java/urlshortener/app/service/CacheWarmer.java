@@ -0,0 +1,164 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.repository.LocalURLCache;
+import urlshortener.app.repository.URLAnalyticsRepository;
+import urlshortener.app.repository.URLRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preloads the hottest mappings into Redis and the L1 cache after startup
+ *
+ * DESIGN DECISIONS:
+ *
+ * 1. Hottest first, in pages
+ *    - Streams the top-N mappings by URLAnalytics.totalClicks, one page per query
+ *    - Each page is written to L1 and pipelined into Redis on a worker pool,
+ *      while the coordinator fetches the next page
+ *
+ * 2. Bounded by a deadline
+ *    - Warm-up stops fetching once the deadline passes
+ *    - isReady() flips when warm-up finishes or the deadline passes, whichever comes first
+ *
+ * 3. Never blocks startup
+ *    - Runs on its own thread after ApplicationReadyEvent; traffic that arrives
+ *      early is still served, just from colder caches
+ */
+@Service
+public class CacheWarmer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final URLAnalyticsRepository analyticsRepository;
+    private final URLRepository urlRepository;
+    private final LocalURLCache localCache;
+    private final boolean enabled;
+    private final int topN;
+    private final int pageSize;
+    private final int parallelism;
+    private final long deadlineMs;
+    private final AtomicInteger warmed = new AtomicInteger();
+    private volatile boolean started;
+    private volatile long deadlineNanos;
+    private volatile boolean finished;
+
+    @Autowired
+    public CacheWarmer(URLAnalyticsRepository analyticsRepository, URLRepository urlRepository,
+                       LocalURLCache localCache, MeterRegistry meterRegistry,
+                       @Value("${urlshortener.warmup.enabled:true}") boolean enabled,
+                       @Value("${urlshortener.warmup.top-n:10000}") int topN,
+                       @Value("${urlshortener.warmup.page-size:500}") int pageSize,
+                       @Value("${urlshortener.warmup.parallelism:4}") int parallelism,
+                       @Value("${urlshortener.warmup.deadline-ms:30000}") long deadlineMs) {
+        this.analyticsRepository = analyticsRepository;
+        this.urlRepository = urlRepository;
+        this.localCache = localCache;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.pageSize = pageSize;
+        this.parallelism = parallelism;
+        this.deadlineMs = deadlineMs;
+        Gauge.builder("urlshortener.warmup.mappings", warmed, AtomicInteger::get)
+            .description("Mappings preloaded into the cache tiers at startup")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        start();
+    }
+
+    public void start() {
+        if (!enabled || topN <= 0) {
+            finished = true;
+            return;
+        }
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        started = true;
+        Thread coordinator = new Thread(this::warmUp, "cache-warmup");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    /**
+     * True once warm-up has completed, failed, or run past its deadline
+     */
+    public boolean isReady() {
+        return finished || (started && System.nanoTime() - deadlineNanos > 0);
+    }
+
+    public int getWarmedCount() {
+        return warmed.get();
+    }
+
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        long deadline = deadlineNanos;
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> pending = new ArrayList<>();
+        try {
+            int remaining = topN;
+            for (int page = 0; remaining > 0 && System.nanoTime() - deadline < 0; ++page) {
+                List<Object[]> rows = analyticsRepository.findHottestMappings(PageRequest.of(page, pageSize));
+                Map<String, String> batch = new LinkedHashMap<>();
+                for (Object[] row : rows) {
+                    if (batch.size() == remaining) {
+                        break;
+                    }
+                    RedirectPolicy policy = RedirectPolicy.of((Boolean) row[2], (Integer) row[3], (Boolean) row[4]);
+                    batch.put((String) row[0], policy.encode((String) row[1]));
+                }
+                if (!batch.isEmpty()) {
+                    pending.add(workers.submit(() -> preload(batch)));
+                }
+                remaining -= batch.size();
+                if (rows.size() < pageSize) {
+                    break;
+                }
+            }
+            for (Future<?> future : pending) {
+                future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            LOGGER.info("Cache warm-up preloaded {} mappings in {}ms", warmed.get(),
+                System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Cache warm-up hit its {}ms deadline after {} mappings", deadlineMs, warmed.get());
+        } catch (Exception e) {
+            LOGGER.error("Cache warm-up failed after {} mappings: {}", warmed.get(), e.getMessage());
+        } finally {
+            workers.shutdownNow();
+            finished = true;
+        }
+    }
+
+    private void preload(Map<String, String> batch) {
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            localCache.put(entry.getKey(), entry.getValue());
+        }
+        urlRepository.saveUrls(batch);
+        warmed.addAndGet(batch.size());
+    }
+}
@@ -3,7 +3,7 @@ package urlshortener.app.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import redis.clients.jedis.Jedis;
+import urlshortener.app.repository.RedisClient;
 
 /**
  * Rate Limiter Service using Token Bucket Algorithm
@@ -25,31 +25,23 @@ import redis.clients.jedis.Jedis;
 public class RateLimiterService {
     private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiterService.class);
     
-    private final Jedis jedis;
-    private boolean redisAvailable = true;
+    private final RedisClient redisClient;
     
     // Rate limit configuration
     private static final int MAX_REQUESTS_PER_WINDOW = 10; // 10 requests
     private static final int WINDOW_SIZE_SECONDS = 60; // per minute
     private static final String RATE_LIMIT_PREFIX = "ratelimit:";
     
-    public RateLimiterService() {
-        this.jedis = new Jedis();
-        checkRedisHealth();
-    }
-    
-    public RateLimiterService(Jedis jedis) {
-        this.jedis = jedis;
+    public RateLimiterService(RedisClient redisClient) {
+        this.redisClient = redisClient;
         checkRedisHealth();
     }
     
     private void checkRedisHealth() {
         try {
-            jedis.ping();
-            redisAvailable = true;
+            redisClient.execute(jedis -> jedis.ping());
             LOGGER.info("RateLimiter: Redis connection healthy");
         } catch (Exception e) {
-            redisAvailable = false;
             LOGGER.warn("RateLimiter: Redis unavailable, rate limiting disabled: {}", e.getMessage());
         }
     }
@@ -61,7 +53,7 @@ public class RateLimiterService {
      * @return true if request is allowed, false if rate limit exceeded
      */
     public boolean isAllowed(String identifier) {
-        if (!redisAvailable) {
+        if (!redisClient.isAvailable()) {
             LOGGER.warn("Redis down, allowing request (degraded mode)");
             return true; // Fail open - allow requests when Redis is down
         }
@@ -70,7 +62,7 @@ public class RateLimiterService {
         
         try {
             // Get current count
-            String countStr = jedis.get(key);
+            String countStr = redisClient.execute(jedis -> jedis.get(key));
             Long currentCount = (countStr != null) ? Long.parseLong(countStr) : 0L;
             
             if (currentCount >= MAX_REQUESTS_PER_WINDOW) {
@@ -80,11 +72,11 @@ public class RateLimiterService {
             }
             
             // Increment counter
-            Long newCount = jedis.incr(key);
+            Long newCount = redisClient.execute(jedis -> jedis.incr(key));
             
             // Set TTL only on first request (when counter = 1)
             if (newCount == 1) {
-                jedis.expire(key, WINDOW_SIZE_SECONDS);
+                redisClient.execute(jedis -> jedis.expire(key, WINDOW_SIZE_SECONDS));
                 LOGGER.info("Started new rate limit window for {}: {}/{} requests", 
                     identifier, newCount, MAX_REQUESTS_PER_WINDOW);
             } else {
@@ -96,7 +88,6 @@ public class RateLimiterService {
             
         } catch (Exception e) {
             LOGGER.error("Rate limiter error: {}, allowing request", e.getMessage());
-            redisAvailable = false;
             return true; // Fail open
         }
     }
@@ -105,13 +96,13 @@ public class RateLimiterService {
      * Get remaining requests for an identifier
      */
     public int getRemainingRequests(String identifier) {
-        if (!redisAvailable) {
+        if (!redisClient.isAvailable()) {
             return MAX_REQUESTS_PER_WINDOW;
         }
         
         try {
             String key = RATE_LIMIT_PREFIX + identifier;
-            String countStr = jedis.get(key);
+            String countStr = redisClient.execute(jedis -> jedis.get(key));
             Long currentCount = (countStr != null) ? Long.parseLong(countStr) : 0L;
             return Math.max(0, (int)(MAX_REQUESTS_PER_WINDOW - currentCount));
         } catch (Exception e) {
@@ -124,13 +115,13 @@ public class RateLimiterService {
      * Get time until rate limit window resets (in seconds)
      */
     public long getResetTime(String identifier) {
-        if (!redisAvailable) {
+        if (!redisClient.isAvailable()) {
             return 0;
         }
         
         try {
             String key = RATE_LIMIT_PREFIX + identifier;
-            Long ttl = jedis.ttl(key);
+            Long ttl = redisClient.execute(jedis -> jedis.ttl(key));
             return (ttl != null && ttl > 0) ? ttl : 0;
         } catch (Exception e) {
             LOGGER.error("Error getting reset time: {}", e.getMessage());
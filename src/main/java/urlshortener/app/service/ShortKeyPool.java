@@ -0,0 +1,157 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.common.IdGenerator;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of pre-minted, pre-encoded short keys
+ *
+ * DESIGN DECISIONS:
+ *
+ * 1. Key minting off the request path
+ *    - A background worker pulls IDs from the IdGenerator and Base62-encodes them
+ *    - POST /shortener just pops a ready String
+ *
+ * 2. Bounded, lock-free queue
+ *    - ConcurrentLinkedQueue plus an AtomicInteger depth counter
+ *    - Only the refill worker adds, so the bound holds without a lock
+ *
+ * 3. Starvation is never an error
+ *    - An empty pool mints a key inline and wakes the worker early
+ *    - Starvation count tells us the pool is undersized for the create rate
+ *
+ * 4. Refills stop at the first failure
+ *    - The worker mints without the IdGenerator's degraded fallback, so an outage
+ *      costs one failed call per refill attempt, not one per key
+ *    - Inline minting on an empty pool still uses the fallback
+ *
+ * Keys still in the pool when the node stops are never issued (gaps are fine).
+ */
+@Service
+public class ShortKeyPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShortKeyPool.class);
+
+    private final IdGenerator idGenerator;
+    private final int capacity;
+    private final int lowWatermark;
+    private final long refillIntervalMs;
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final ScheduledExecutorService refillExecutor;
+    private final Timer refillTimer;
+    private final Counter starvationCounter;
+    private final Counter refillFailures;
+
+    @Autowired
+    public ShortKeyPool(IdGenerator idGenerator, MeterRegistry meterRegistry,
+                        @Value("${urlshortener.keypool.capacity:10000}") int capacity,
+                        @Value("${urlshortener.keypool.low-watermark:2500}") int lowWatermark,
+                        @Value("${urlshortener.keypool.refill-interval-ms:50}") long refillIntervalMs) {
+        this.idGenerator = idGenerator;
+        this.capacity = capacity;
+        this.lowWatermark = lowWatermark;
+        this.refillIntervalMs = refillIntervalMs;
+        this.refillExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "short-key-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("urlshortener.keypool.depth", depth, AtomicInteger::get)
+            .description("Pre-generated short keys ready to be issued")
+            .register(meterRegistry);
+        this.refillTimer = Timer.builder("urlshortener.keypool.refill")
+            .description("Time to top the short key pool back up to capacity")
+            .register(meterRegistry);
+        this.starvationCounter = Counter.builder("urlshortener.keypool.starvation")
+            .description("Creates that found the pool empty and minted a key inline")
+            .register(meterRegistry);
+        this.refillFailures = Counter.builder("urlshortener.keypool.refill.failures")
+            .description("Refills aborted because no ID could be minted")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        refillExecutor.scheduleWithFixedDelay(this::refillIfLow, 0, refillIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Next unused short key
+     */
+    public String take() {
+        String key = keys.poll();
+        if (key != null) {
+            if (depth.decrementAndGet() < lowWatermark) {
+                wakeRefill();
+            }
+            return key;
+        }
+        starvationCounter.increment();
+        LOGGER.warn("Short key pool empty, minting key inline");
+        wakeRefill();
+        return mint();
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    private void wakeRefill() {
+        if (!refilling.get()) {
+            try {
+                refillExecutor.execute(this::refillIfLow);
+            } catch (RuntimeException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    private void refillIfLow() {
+        if (depth.get() >= lowWatermark || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refillTimer.record(() -> {
+                while (depth.get() < capacity) {
+                    keys.offer(IDConverter.createUniqueID(idGenerator.nextIdWithoutFallback()));
+                    depth.incrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            refillFailures.increment();
+            LOGGER.error("Short key pool refill aborted at depth {}, retrying in {}ms: {}", depth.get(),
+                refillIntervalMs, e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private String mint() {
+        return IDConverter.createUniqueID(idGenerator.nextId());
+    }
+
+    @PreDestroy
+    public void close() {
+        refillExecutor.shutdownNow();
+    }
+}
@@ -1,32 +1,96 @@
 package urlshortener.app.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import urlshortener.app.common.IDConverter;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.common.RedirectResponse;
+import urlshortener.app.common.SingleFlight;
+import urlshortener.app.exception.ShortKeyNotFoundException;
 import urlshortener.app.model.URLMapping;
+import urlshortener.app.repository.LocalURLCache;
+import urlshortener.app.repository.NegativeURLCache;
 import urlshortener.app.repository.URLMappingRepository;
 import urlshortener.app.repository.URLRepository;
 
+import javax.annotation.PreDestroy;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 @Service
 public class URLConverterService {
     private static final Logger LOGGER = LoggerFactory.getLogger(URLConverterService.class);
     private final URLRepository urlRepository;
     private final URLMappingRepository dbRepository;
+    private final ShortKeyPool shortKeyPool;
+    private final LocalURLCache localCache;
+    private final NegativeURLCache negativeCache;
+    private final ShortKeyFilter shortKeyFilter;
+    private final SingleFlight<String, String> redirectLoads = new SingleFlight<>();
+    private final long coalesceTimeoutMs;
+    private final ExecutorService databaseExecutor;
 
     @Autowired
-    public URLConverterService(URLRepository urlRepository, URLMappingRepository dbRepository) {
+    public URLConverterService(URLRepository urlRepository, URLMappingRepository dbRepository,
+                               ShortKeyPool shortKeyPool, LocalURLCache localCache, NegativeURLCache negativeCache,
+                               ShortKeyFilter shortKeyFilter, MeterRegistry meterRegistry,
+                               @Value("${urlshortener.redirect.coalesce-timeout-ms:2000}") long coalesceTimeoutMs,
+                               @Value("${urlshortener.redirect.async.db-threads:16}") int asyncDbThreads) {
         this.urlRepository = urlRepository;
         this.dbRepository = dbRepository;
+        this.shortKeyPool = shortKeyPool;
+        this.localCache = localCache;
+        this.negativeCache = negativeCache;
+        this.shortKeyFilter = shortKeyFilter;
+        this.coalesceTimeoutMs = coalesceTimeoutMs;
+        this.databaseExecutor = Executors.newFixedThreadPool(asyncDbThreads, runnable -> {
+            Thread thread = new Thread(runnable, "redirect-db");
+            thread.setDaemon(true);
+            return thread;
+        });
+        FunctionCounter.builder("urlshortener.redirect.loads", redirectLoads, SingleFlight::getLoads)
+            .description("Redirect cache misses that ran their own Redis/DB load")
+            .register(meterRegistry);
+        FunctionCounter.builder("urlshortener.redirect.coalesced", redirectLoads, SingleFlight::getCoalesced)
+            .description("Redirect cache misses that joined a load already in flight for the same key")
+            .register(meterRegistry);
+        FunctionCounter.builder("urlshortener.redirect.coalesced.timeouts", redirectLoads, SingleFlight::getTimeouts)
+            .description("Coalesced misses that gave up waiting for the in-flight load")
+            .register(meterRegistry);
+        Gauge.builder("urlshortener.redirect.inflight", redirectLoads, SingleFlight::inFlight)
+            .register(meterRegistry);
     }
 
     public String shortenURL(String localURL, String longUrl) {
+        return shortenURL(localURL, longUrl, RedirectPolicy.DEFAULT);
+    }
+
+    /**
+     * Shorten with an explicit redirect policy
+     *
+     * Shortening is idempotent per long URL: if the URL was already shortened
+     * the existing key is returned and keeps the policy it was created with.
+     */
+    public String shortenURL(String localURL, String longUrl, RedirectPolicy policy) {
         LOGGER.info("Shortening {}", longUrl);
         
         // Generate hash of the long URL for idempotency
@@ -47,10 +111,8 @@ public class URLConverterService {
             String shortKey = existingMapping.get().getShortKey();
             LOGGER.info("[DB HIT] Found in database, repopulating cache: {}", shortKey);
             
-            // Step 3: Repopulate cache with TTL (cache-aside write-through)
-            urlRepository.saveUrlHash(urlHash, shortKey);
-            Long id = IDConverter.INSTANCE.getDictionaryKeyFromUniqueID(shortKey);
-            urlRepository.saveUrl("url:" + id, longUrl);
+            // Step 3: Repopulate cache with TTL (cache-aside write-through), one round trip
+            urlRepository.saveMapping(shortKey, existingMapping.get().getCacheValue(), urlHash);
             
             String baseString = formatLocalURLFromShortener(localURL);
             return baseString + shortKey;
@@ -59,26 +121,21 @@ public class URLConverterService {
         // Step 4: Neither cache nor DB has it - create new entry
         LOGGER.info("[DB MISS] Creating new shortened URL");
         
-        // Try Redis ID, fallback to DB sequence if Redis is down
-        Long id = urlRepository.incrementID();
-        if (id == null) {
-            LOGGER.warn("[DEGRADED MODE] Redis down, using DB-generated sequence");
-            // Let DB generate the ID
-            URLMapping mapping = new URLMapping(null, longUrl, urlHash);
-            URLMapping saved = dbRepository.save(mapping);
-            id = saved.getId();
-        }
-        
-        String uniqueID = IDConverter.INSTANCE.createUniqueID(id);
+        // Pre-minted key, no ID round trip on the request path
+        String uniqueID = shortKeyPool.take();
         
         // Save to database (source of truth)
         URLMapping newMapping = new URLMapping(uniqueID, longUrl, urlHash);
+        newMapping.setRedirectPolicy(policy);
         dbRepository.save(newMapping);
+        shortKeyFilter.add(uniqueID);
+        negativeCache.invalidate(uniqueID);
         LOGGER.info("[DB WRITE] Saved to database: {}", uniqueID);
         
-        // Write to cache if available
-        urlRepository.saveUrl("url:" + id, longUrl);
-        urlRepository.saveUrlHash(urlHash, uniqueID);
+        // Write both cache entries in one pipelined round trip
+        String cacheValue = newMapping.getCacheValue();
+        urlRepository.saveMapping(uniqueID, cacheValue, urlHash);
+        localCache.put(uniqueID, cacheValue);
         LOGGER.info("[CACHE WRITE] Populated cache with TTL");
         
         String baseString = formatLocalURLFromShortener(localURL);
@@ -86,34 +143,311 @@ public class URLConverterService {
         return shortenedURL;
     }
 
-    public String getLongURLFromID(String uniqueID) throws Exception {
-        Long dictionaryKey = IDConverter.INSTANCE.getDictionaryKeyFromUniqueID(uniqueID);
+    /**
+     * Shorten a chunk of distinct long URLs in bulk
+     *
+     * One findByUrlHashIn query finds the URLs that were already shortened
+     * (they keep their key and policy); the rest get pooled keys and are
+     * inserted with one JDBC batch. Every mapping is then cached with one
+     * Redis pipeline.
+     *
+     * @param policies long URL -> redirect policy for URLs not shortened yet
+     * @return long URL -> short URL, in the iteration order of policies
+     */
+    public Map<String, String> shortenBatch(String localURL, Map<String, RedirectPolicy> policies) {
+        LOGGER.info("Shortening batch of {} URLs", policies.size());
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String longUrl : policies.keySet()) {
+            hashes.put(longUrl, generateHash(longUrl));
+        }
         
-        // CACHE-ASIDE PATTERN - Step 1: Try cache first
-        String longUrl = urlRepository.getUrl(dictionaryKey);
+        // Step 1: One IN query instead of a cache and DB lookup per URL
+        Map<String, URLMapping> existing = new HashMap<>();
+        for (URLMapping mapping : dbRepository.findByUrlHashIn(hashes.values())) {
+            existing.putIfAbsent(mapping.getUrlHash(), mapping);
+        }
         
+        // Step 2: Pooled keys for the rest
+        String baseString = formatLocalURLFromShortener(localURL);
+        Map<String, String> shortUrls = new LinkedHashMap<>();
+        List<URLMapping> mappings = new ArrayList<>(hashes.size());
+        List<URLMapping> created = new ArrayList<>();
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            URLMapping mapping = existing.get(entry.getValue());
+            if (mapping == null) {
+                mapping = new URLMapping(shortKeyPool.take(), entry.getKey(), entry.getValue());
+                mapping.setRedirectPolicy(policies.get(entry.getKey()));
+                created.add(mapping);
+            }
+            mappings.add(mapping);
+            shortUrls.put(entry.getKey(), baseString + mapping.getShortKey());
+        }
+        
+        // Step 3: One JDBC batch for the new rows
+        if (!created.isEmpty()) {
+            dbRepository.insertAll(created);
+            List<String> createdKeys = new ArrayList<>(created.size());
+            for (URLMapping mapping : created) {
+                shortKeyFilter.add(mapping.getShortKey());
+                localCache.put(mapping.getShortKey(), mapping.getCacheValue());
+                createdKeys.add(mapping.getShortKey());
+            }
+            negativeCache.invalidateAll(createdKeys);
+        }
+        LOGGER.info("[DB WRITE] Batch: {} existing, {} created", mappings.size() - created.size(), created.size());
+        
+        // Step 4: One pipeline for both cache directions of every mapping
+        urlRepository.saveMappings(mappings);
+        return shortUrls;
+    }
+
+    /**
+     * Resolve many short keys without recording clicks
+     *
+     * Keys are checked against L1, the negative cache, the codec and the
+     * Bloom filter first; the rest are fetched from Redis with one MGET, and
+     * Redis misses from the DB with one short_key IN query. DB hits are
+     * back-filled into Redis with one pipeline, DB misses negatively cached;
+     * keys only the filter rejected are not.
+     *
+     * @return short key -> redirect, for the keys that exist only
+     */
+    public Map<String, RedirectResponse> resolveBatch(Collection<String> shortKeys) {
+        Map<String, RedirectResponse> resolved = new HashMap<>();
+        List<String> pending = new ArrayList<>();
+        for (String shortKey : new LinkedHashSet<>(shortKeys)) {
+            RedirectResponse cached = localCache.getRedirect(shortKey);
+            if (cached != null) {
+                resolved.put(shortKey, cached);
+            } else if (!negativeCache.isKnownMissing(shortKey) && isWellFormed(shortKey)) {
+                pending.add(shortKey);
+            }
+        }
+        LOGGER.info("[L1] Batch: {} of {} keys resolved locally", resolved.size(), shortKeys.size());
+        
+        // Step 1: One multi-get for everything L1 could not answer
+        Map<String, String> cacheHits;
+        boolean cacheAnswered = true;
+        try {
+            cacheHits = urlRepository.lookupUrls(pending);
+        } catch (Exception e) {
+            LOGGER.warn("Cache multi-get failed, querying database for all {} keys: {}", pending.size(), e.getMessage());
+            cacheHits = new HashMap<>();
+            cacheAnswered = false;
+        }
+        List<String> misses = new ArrayList<>();
+        for (String shortKey : pending) {
+            String cacheValue = cacheHits.get(shortKey);
+            if (cacheValue != null) {
+                localCache.put(shortKey, cacheValue);
+                resolved.put(shortKey, redirectFor(shortKey, cacheValue));
+            } else if (!cacheAnswered || shortKeyFilter.mightContain(shortKey)) {
+                // Without Redis a filter miss may still be a key another node just created
+                misses.add(shortKey);
+            }
+            // Otherwise never issued: no DB query, and no negative entry either, since
+            // the filter may only be lagging behind another node
+        }
+        
+        if (!misses.isEmpty()) {
+            // Step 2: One IN query for the cache misses
+            LOGGER.info("[CACHE MISS] Batch: querying database for {} keys", misses.size());
+            Map<String, String> backfill = new HashMap<>();
+            for (URLMapping mapping : dbRepository.findByShortKeyIn(misses)) {
+                String cacheValue = mapping.getCacheValue();
+                backfill.put(mapping.getShortKey(), cacheValue);
+                localCache.put(mapping.getShortKey(), cacheValue);
+                resolved.put(mapping.getShortKey(), redirectFor(mapping.getShortKey(), cacheValue));
+            }
+            
+            // Step 3: One pipeline to back-fill Redis
+            urlRepository.saveUrls(backfill);
+            
+            // Only keys the DB confirmed missing are negatively cached
+            List<String> missing = new ArrayList<>();
+            for (String shortKey : misses) {
+                if (!backfill.containsKey(shortKey)) {
+                    missing.add(shortKey);
+                }
+            }
+            negativeCache.markAllMissing(missing);
+        }
+        return resolved;
+    }
+
+    public String getLongURLFromID(String uniqueID) throws Exception {
+        // Step 0: In-JVM L1 cache, no network hop for hot links
+        String longUrl = localCache.get(uniqueID);
         if (longUrl != null) {
-            LOGGER.info("[CACHE HIT] Retrieved from cache: {}", longUrl);
+            LOGGER.info("[L1 HIT] Retrieved from local cache: {}", longUrl);
             return longUrl;
         }
         
+        return RedirectPolicy.longUrlOf(loadCacheValue(uniqueID));
+    }
+
+    /**
+     * Non-blocking getLongURLFromID
+     *
+     * L1 hits complete immediately; otherwise the Redis lookup runs on the
+     * Redis I/O pool and a DB fallback on the redirect-db pool, so the calling
+     * thread never waits on the network.
+     */
+    public CompletableFuture<String> getLongURLFromIDAsync(String uniqueID) {
+        String longUrl = localCache.get(uniqueID);
+        if (longUrl != null) {
+            LOGGER.info("[L1 HIT] Retrieved from local cache: {}", longUrl);
+            return CompletableFuture.completedFuture(longUrl);
+        }
+        return loadCacheValueAsync(uniqueID).thenApply(RedirectPolicy::longUrlOf);
+    }
+
+    /**
+     * The precomputed redirect for a key; hot links are served straight from L1
+     */
+    public RedirectResponse getRedirect(String uniqueID) throws Exception {
+        RedirectResponse cached = localCache.getRedirect(uniqueID);
+        if (cached != null) {
+            return cached;
+        }
+        return redirectFor(uniqueID, loadCacheValue(uniqueID));
+    }
+
+    public CompletableFuture<RedirectResponse> getRedirectAsync(String uniqueID) {
+        RedirectResponse cached = localCache.getRedirect(uniqueID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return loadCacheValueAsync(uniqueID).thenApply(value -> redirectFor(uniqueID, value));
+    }
+
+    private RedirectResponse redirectFor(String uniqueID, String cacheValue) {
+        // The load has just cached the mapping, so reuse its response unless L1 declined the entry
+        RedirectResponse cached = localCache.getRedirect(uniqueID);
+        return cached != null ? cached : localCache.redirectFor(cacheValue);
+    }
+
+    /**
+     * Cache value (long URL plus encoded redirect policy) for a key missing from L1
+     */
+    private String loadCacheValue(String uniqueID) throws Exception {
+        boolean mightExist = checkShortKey(uniqueID);
+        
+        // Concurrent misses for the same key share a single Redis/DB load
+        return redirectLoads.execute(uniqueID, () -> loadMapping(uniqueID, mightExist), coalesceTimeoutMs);
+    }
+
+    private CompletableFuture<String> loadCacheValueAsync(String uniqueID) {
+        boolean mightExist;
+        try {
+            mightExist = checkShortKey(uniqueID);
+        } catch (ShortKeyNotFoundException e) {
+            CompletableFuture<String> notFound = new CompletableFuture<>();
+            notFound.completeExceptionally(e);
+            return notFound;
+        }
+        
+        return redirectLoads.executeAsync(uniqueID, () -> urlRepository.lookupUrlAsync(uniqueID)
+            .handle((cached, failure) -> {
+                if (failure != null) {
+                    LOGGER.warn("Cache lookup failed for {}, falling back to database: {}", uniqueID,
+                        failure.getMessage());
+                    return CompletableFuture.supplyAsync(() -> loadFromDatabase(uniqueID, true), databaseExecutor);
+                }
+                if (cached != null) {
+                    LOGGER.info("[CACHE HIT] Retrieved from cache: {}", cached);
+                    localCache.put(uniqueID, cached);
+                    return CompletableFuture.completedFuture(cached);
+                }
+                return CompletableFuture.supplyAsync(() -> loadFromDatabase(uniqueID, mightExist), databaseExecutor);
+            })
+            .thenCompose(Function.identity()));
+    }
+
+    /**
+     * Checks that need no I/O: negative cache, key syntax, Bloom filter
+     *
+     * @return whether the key might have been issued
+     * @throws ShortKeyNotFoundException if the key is known missing or malformed
+     */
+    private boolean checkShortKey(String uniqueID) {
+        // Recently seen missing: answer without any I/O
+        if (negativeCache.isKnownMissing(uniqueID)) {
+            LOGGER.info("[NEGATIVE HIT] Short key recently seen missing: {}", uniqueID);
+            throw new ShortKeyNotFoundException(uniqueID);
+        }
+        
+        // Reject malformed keys before they cost a cache or DB lookup
+        if (!isWellFormed(uniqueID)) {
+            throw new ShortKeyNotFoundException(uniqueID);
+        }
+        
+        // Keys the filter has never seen can only exist if another node created them
+        // moments ago, and those are already cached in Redis, so a filter miss is only
+        // trusted once Redis has answered for the key
+        return shortKeyFilter.mightContain(uniqueID);
+    }
+
+    private static boolean isWellFormed(String uniqueID) {
+        try {
+            IDConverter.decode(uniqueID);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String loadMapping(String uniqueID, boolean mightExist) {
+        // CACHE-ASIDE PATTERN - Step 1: Try cache first
+        String cacheValue;
+        try {
+            cacheValue = urlRepository.lookupUrl(uniqueID);
+        } catch (Exception e) {
+            // Redis did not answer, so it cannot vouch for keys the filter has not seen yet
+            LOGGER.warn("Cache lookup failed for {}, falling back to database: {}", uniqueID, e.getMessage());
+            return loadFromDatabase(uniqueID, true);
+        }
+        
+        if (cacheValue != null) {
+            LOGGER.info("[CACHE HIT] Retrieved from cache: {}", cacheValue);
+            localCache.put(uniqueID, cacheValue);
+            return cacheValue;
+        }
+        
+        return loadFromDatabase(uniqueID, mightExist);
+    }
+
+    private String loadFromDatabase(String uniqueID, boolean mightExist) {
+        if (!mightExist) {
+            // Not negatively cached: only a DB miss confirms a key is missing
+            LOGGER.info("[FILTER MISS] Short key was never issued: {}", uniqueID);
+            throw new ShortKeyNotFoundException(uniqueID);
+        }
+        
+        if (negativeCache.isKnownMissingShared(uniqueID)) {
+            LOGGER.info("[NEGATIVE HIT] Another node recently saw short key missing: {}", uniqueID);
+            throw new ShortKeyNotFoundException(uniqueID);
+        }
+        
         // Step 2: Cache miss - query database
         LOGGER.info("[CACHE MISS] Querying database for shortKey: {}", uniqueID);
         Optional<URLMapping> mapping = dbRepository.findByShortKey(uniqueID);
         
         if (!mapping.isPresent()) {
             LOGGER.error("[DB MISS] URL not found for shortKey: {}", uniqueID);
-            throw new Exception("URL for short key " + uniqueID + " does not exist");
+            negativeCache.markMissing(uniqueID);
+            throw new ShortKeyNotFoundException(uniqueID);
         }
         
-        longUrl = mapping.get().getLongUrl();
-        LOGGER.info("[DB HIT] Retrieved from database: {}", longUrl);
+        String cacheValue = mapping.get().getCacheValue();
+        LOGGER.info("[DB HIT] Retrieved from database: {}", mapping.get().getLongUrl());
         
         // Step 3: Repopulate cache with TTL
         LOGGER.info("[CACHE WRITE] Repopulating cache with TTL");
-        urlRepository.saveUrl("url:" + dictionaryKey, longUrl);
+        urlRepository.saveUrl(uniqueID, cacheValue);
+        localCache.put(uniqueID, cacheValue);
         
-        return longUrl;
+        return cacheValue;
     }
 
     private String formatLocalURLFromShortener(String localURL) {
@@ -149,4 +483,8 @@ public class URLConverterService {
         }
     }
 
+    @PreDestroy
+    public void close() {
+        databaseExecutor.shutdown();
+    }
 }
@@ -0,0 +1,43 @@
+package urlshortener.app.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void test_noFalseNegatives_andMeasuredFalsePositiveRateNearTarget() {
+        int keys = 1_000_000;
+        BloomFilter filter = new BloomFilter(keys, 0.01);
+        for (long id = 0; id < keys; ++id) {
+            filter.put(id * 7919);
+        }
+        for (long id = 0; id < keys; ++id) {
+            assertTrue(filter.mightContain(id * 7919));
+        }
+
+        int probes = 1_000_000;
+        int falsePositives = 0;
+        for (long id = 0; id < probes; ++id) {
+            if (filter.mightContain(id * 7919 + 1)) {
+                ++falsePositives;
+            }
+        }
+        double measured = (double) falsePositives / probes;
+        assertTrue("False-positive rate too high: " + measured, measured < 0.0125);
+    }
+
+    @Test
+    public void test_sizingAtOneHundredMillionKeys() {
+        long keys = 100_000_000L;
+
+        long bitsAtOnePercent = BloomFilter.optimalBitSize(keys, 0.01);
+        long bitsAtTenthPercent = BloomFilter.optimalBitSize(keys, 0.001);
+        assertEquals(114, bitsAtOnePercent / 8 / (1 << 20));
+        assertEquals(7, BloomFilter.optimalHashFunctions(keys, bitsAtOnePercent));
+        assertEquals(171, bitsAtTenthPercent / 8 / (1 << 20));
+        assertEquals(10, BloomFilter.optimalHashFunctions(keys, bitsAtTenthPercent));
+    }
+}
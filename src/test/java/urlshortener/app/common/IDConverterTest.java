@@ -0,0 +1,80 @@
+package urlshortener.app.common;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IDConverterTest {
+
+    @Test
+    public void test_encode_matchesAlphabetOrder() {
+        assertEquals("a", IDConverter.createUniqueID(0L));
+        assertEquals("9", IDConverter.createUniqueID(61L));
+        assertEquals("ba", IDConverter.createUniqueID(62L));
+        assertEquals("k9viXaIfiWh", IDConverter.createUniqueID(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void test_roundTrip_isExactAcrossLongRange() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; ++i) {
+            long id = random.nextLong() & Long.MAX_VALUE;
+            assertEquals(id, IDConverter.decode(new String(IDConverter.encode(id))));
+        }
+        // Math.pow based decoding lost precision above 2^53
+        long beyondDouble = (1L << 53) + 1;
+        assertEquals(beyondDouble, IDConverter.decode(new String(IDConverter.encode(beyondDouble))));
+    }
+
+    @Test
+    public void test_encodeIntoBuffer_writesAtOffset() {
+        char[] buffer = new char[16];
+        int length = IDConverter.encode(62L * 62L, buffer, 3);
+        assertEquals(3, length);
+        assertEquals("baa", new String(buffer, 3, length));
+    }
+
+    @Test
+    public void test_decode_rejectsIllegalCharacter() {
+        // No leading zero digit, so the character check is what rejects it
+        assertRejectedAsIllegalCharacter("b-c");
+    }
+
+    @Test
+    public void test_decode_rejectsNonAsciiCharacter() {
+        assertRejectedAsIllegalCharacter("b\u00e9");
+    }
+
+    private static void assertRejectedAsIllegalCharacter(String key) {
+        try {
+            IDConverter.decode(key);
+            fail("Expected " + key + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Illegal character"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_decode_rejectsOverflow() {
+        IDConverter.decode("k9viXaIfiWi");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_decode_rejectsLeadingZeroDigit() {
+        IDConverter.decode("ab");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_decode_rejectsEmptyKey() {
+        IDConverter.decode("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_encode_rejectsNegativeId() {
+        IDConverter.encode(-1L);
+    }
+}
@@ -0,0 +1,58 @@
+package urlshortener.app.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RedirectPolicyTest {
+
+    @Test
+    public void test_default_isTemporaryWithConfiguredCacheControl() {
+        RedirectPolicy policy = RedirectPolicy.of(null, null, null);
+        assertSame(RedirectPolicy.DEFAULT, policy);
+        assertEquals(302, policy.status());
+        assertNull(policy.cacheControl(""));
+        assertEquals("private, max-age=60", policy.cacheControl("private, max-age=60"));
+        // Default mappings keep the plain long URL in the cache tiers
+        assertEquals("example.com/page", policy.encode("example.com/page"));
+    }
+
+    @Test
+    public void test_permanentTracked_isNeverCached() {
+        RedirectPolicy policy = RedirectPolicy.of(true, 600, true);
+        assertEquals(301, policy.status());
+        assertEquals("no-store", policy.cacheControl("private, max-age=60"));
+    }
+
+    @Test
+    public void test_untracked_isPubliclyCacheable() {
+        assertEquals("public, max-age=600", RedirectPolicy.of(true, 600, false).cacheControl(""));
+        assertEquals("public, max-age=3600", RedirectPolicy.of(false, null, false).cacheControl(""));
+        assertEquals(302, RedirectPolicy.of(false, 0, false).status());
+    }
+
+    @Test
+    public void test_encode_roundTripsPolicyAndUrl() {
+        RedirectPolicy[] policies = {
+            RedirectPolicy.of(true, null, true),
+            RedirectPolicy.of(true, 86400, false),
+            RedirectPolicy.of(false, 0, false),
+            RedirectPolicy.of(false, 30, true)
+        };
+        for (RedirectPolicy policy : policies) {
+            String value = policy.encode("example.com/a~b?c=1");
+            assertEquals("example.com/a~b?c=1", RedirectPolicy.longUrlOf(value));
+            RedirectPolicy decoded = RedirectPolicy.policyOf(value);
+            assertEquals(policy.isPermanent(), decoded.isPermanent());
+            assertEquals(policy.getMaxAgeSeconds(), decoded.getMaxAgeSeconds());
+            assertEquals(policy.isTrackClicks(), decoded.isTrackClicks());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_of_rejectsNegativeMaxAge() {
+        RedirectPolicy.of(false, -1, false);
+    }
+}
@@ -0,0 +1,84 @@
+package urlshortener.app.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    public void test_nextId_uniqueAcrossThreadsAndNodes() throws Exception {
+        SnowflakeIdGenerator[] nodes = { new SnowflakeIdGenerator(1), new SnowflakeIdGenerator(2) };
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; ++t) {
+            SnowflakeIdGenerator node = nodes[t % nodes.length];
+            futures.add(pool.submit(() -> {
+                int duplicates = 0;
+                for (int i = 0; i < 50_000; ++i) {
+                    if (!issued.add(node.nextId())) {
+                        ++duplicates;
+                    }
+                }
+                return duplicates;
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(0, (int) future.get());
+        }
+        pool.shutdown();
+        assertEquals(400_000, issued.size());
+    }
+
+    @Test
+    public void test_nextId_staysMonotonicWhenClockGoesBackwards() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 10_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, clock::get);
+
+        long before = generator.nextId();
+        clock.addAndGet(-5_000);
+        long during = generator.nextId();
+        clock.addAndGet(10_000);
+        long after = generator.nextId();
+
+        assertTrue(during > before);
+        assertTrue(after > during);
+        assertEquals(1, generator.getClockRegressions());
+    }
+
+    @Test
+    public void test_nextId_sequenceOverflowCarriesIntoTimestamp() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 1);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, clock::get);
+        long previous = -1;
+        for (int i = 0; i < 10_000; ++i) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void test_nextId_encodesToCompactKey() {
+        long id = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID).nextId();
+        assertTrue(id > 0);
+        assertTrue(IDConverter.createUniqueID(id).length() <= IDConverter.MAX_KEY_LENGTH);
+        assertEquals(id, IDConverter.decode(IDConverter.createUniqueID(id)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_rejectsOutOfRangeNodeId() {
+        new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1);
+    }
+}
@@ -0,0 +1,87 @@
+package urlshortener.app.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.service.AnalyticsService;
+import urlshortener.app.service.RateLimiterService;
+import urlshortener.app.service.URLConverterService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchControllerTest {
+    private URLConverterService urlConverterService;
+    private MockMvc mockMvc;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        urlConverterService = mock(URLConverterService.class);
+        when(urlConverterService.shortenBatch(anyString(), anyMap())).thenAnswer(invocation -> {
+            Map<String, RedirectPolicy> pending = invocation.getArgument(1);
+            Map<String, String> shortUrls = new LinkedHashMap<>();
+            int next = 0;
+            for (String longUrl : pending.keySet()) {
+                shortUrls.put(longUrl, "http://localhost/shortener/k" + next++);
+            }
+            return shortUrls;
+        });
+        RateLimiterService rateLimiter = mock(RateLimiterService.class);
+        when(rateLimiter.isAllowed(anyString())).thenReturn(true);
+        // Spring Boot's ObjectMapper settings, as in the application context
+        BatchController controller = new BatchController(urlConverterService, rateLimiter,
+            mock(AnalyticsService.class), Jackson2ObjectMapperBuilder.json().build(), 100, 10);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .setControllerAdvice(new GlobalExceptionHandler()).build();
+    }
+
+    @Test
+    public void test_shortenBatch_reportsEachMalformedElementAndShortensTheRest() throws Exception {
+        String body = "[\"http://example.com/a\", null, 42, true, [\"http://example.com/b\"],"
+            + " {\"url\": \"http://example.com/c\", \"campaign\": \"spring\"},"
+            + " {\"url\": \"http://example.com/d\", \"maxAgeSeconds\": \"soon\"},"
+            + " \"http://example.com/e\"]";
+
+        mockMvc.perform(post("/shortener/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(8))
+            .andExpect(jsonPath("$[0].shortUrl").value("http://localhost/shortener/k0"))
+            .andExpect(jsonPath("$[1].url").value(nullValue()))
+            .andExpect(jsonPath("$[1].error").value("Expected a URL string or object"))
+            .andExpect(jsonPath("$[2].error").value("Expected a URL string or object"))
+            .andExpect(jsonPath("$[3].error").value("Expected a URL string or object"))
+            .andExpect(jsonPath("$[4].error").value("Expected a URL string or object"))
+            // Unknown fields are ignored, as for POST /shortener
+            .andExpect(jsonPath("$[5].shortUrl").value("http://localhost/shortener/k1"))
+            .andExpect(jsonPath("$[6].url").value("http://example.com/d"))
+            .andExpect(jsonPath("$[6].error").value(containsString("Invalid element")))
+            .andExpect(jsonPath("$[7].shortUrl").value("http://localhost/shortener/k2"));
+    }
+
+    @Test
+    public void test_shortenBatch_nonArrayBodyIsBadRequest() throws Exception {
+        mockMvc.perform(post("/shortener/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\": \"http://example.com/a\"}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Expected a JSON array of URLs"));
+
+        verify(urlConverterService, never()).shortenBatch(anyString(), anyMap());
+    }
+}
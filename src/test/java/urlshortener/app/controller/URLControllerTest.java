@@ -0,0 +1,148 @@
+package urlshortener.app.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.common.RedirectResponse;
+import urlshortener.app.exception.ShortKeyNotFoundException;
+import urlshortener.app.model.ClickRollup.Granularity;
+import urlshortener.app.repository.LocalURLCache;
+import urlshortener.app.service.AnalyticsService;
+import urlshortener.app.service.RateLimiterService;
+import urlshortener.app.service.URLConverterService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class URLControllerTest {
+    private URLConverterService urlConverterService;
+    private AnalyticsService analyticsService;
+    private LocalURLCache localCache;
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        urlConverterService = mock(URLConverterService.class);
+        localCache = new LocalURLCache(new SimpleMeterRegistry(), 100, 60, "private, max-age=60");
+        analyticsService = mock(AnalyticsService.class);
+        URLController controller = new URLController(urlConverterService, mock(RateLimiterService.class),
+            analyticsService, true);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private ResultActions redirect(String shortKey, RedirectPolicy policy) throws Exception {
+        // Responses are built exactly as the service builds them: from the policy-encoded cache value
+        localCache.put(shortKey, policy.encode("example.com/" + shortKey));
+        when(urlConverterService.getRedirectAsync(shortKey))
+            .thenReturn(CompletableFuture.completedFuture(localCache.getRedirect(shortKey)));
+        MvcResult result = mockMvc.perform(get("/" + shortKey))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+            .andExpect(header().string("Location", "http://example.com/" + shortKey));
+    }
+
+    @Test
+    public void test_redirect_defaultPolicy() throws Exception {
+        redirect("bX", RedirectPolicy.DEFAULT)
+            .andExpect(status().isFound())
+            .andExpect(header().string("Cache-Control", "private, max-age=60"));
+        verify(analyticsService).recordClickAsync("bX");
+    }
+
+    @Test
+    public void test_redirect_unknownKeyRecordsNoClick() throws Exception {
+        CompletableFuture<RedirectResponse> notFound = new CompletableFuture<>();
+        notFound.completeExceptionally(new ShortKeyNotFoundException("zzzzzz"));
+        when(urlConverterService.getRedirectAsync("zzzzzz")).thenReturn(notFound);
+        MvcResult result = mockMvc.perform(get("/zzzzzz"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result));
+
+        verify(analyticsService, never()).recordClickAsync(anyString());
+    }
+
+    @Test
+    public void test_redirect_blockingUnknownKeyIs404AndRecordsNoClick() throws Exception {
+        when(urlConverterService.getRedirect("zzzzzz")).thenThrow(new ShortKeyNotFoundException("zzzzzz"));
+        URLController blocking = new URLController(urlConverterService, mock(RateLimiterService.class),
+            analyticsService, false);
+        MockMvcBuilders.standaloneSetup(blocking).setControllerAdvice(new GlobalExceptionHandler()).build()
+            .perform(get("/zzzzzz"))
+            .andExpect(status().isNotFound());
+
+        verify(analyticsService, never()).recordClick(anyString());
+    }
+
+    @Test
+    public void test_redirect_permanentTrackedIsNotCacheable() throws Exception {
+        redirect("bY", RedirectPolicy.of(true, null, true))
+            .andExpect(status().isMovedPermanently())
+            .andExpect(header().string("Cache-Control", "no-store"));
+    }
+
+    @Test
+    public void test_redirect_permanentUntrackedIsPubliclyCacheable() throws Exception {
+        redirect("bZ", RedirectPolicy.of(true, 86400, false))
+            .andExpect(status().isMovedPermanently())
+            .andExpect(header().string("Cache-Control", "public, max-age=86400"));
+    }
+
+    @Test
+    public void test_redirect_temporaryUntrackedUsesDefaultMaxAge() throws Exception {
+        redirect("cb", RedirectPolicy.of(false, null, false))
+            .andExpect(status().isFound())
+            .andExpect(header().string("Cache-Control", "public, max-age=3600"));
+    }
+
+    @Test
+    public void test_shorten_negativeMaxAgeIsBadRequest() throws Exception {
+        RateLimiterService rateLimiter = mock(RateLimiterService.class);
+        when(rateLimiter.isAllowed(anyString())).thenReturn(true);
+        URLController controller = new URLController(urlConverterService, rateLimiter, analyticsService, true);
+        MockMvcBuilders.standaloneSetup(controller).setControllerAdvice(new GlobalExceptionHandler()).build()
+            .perform(post("/shortener").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\": \"http://example.com/page\", \"maxAgeSeconds\": -1}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Bad Request"));
+
+        verify(urlConverterService, never()).shortenURL(anyString(), anyString(), any(RedirectPolicy.class));
+    }
+
+    @Test
+    public void test_timeSeries_unknownGranularityIsBadRequest() throws Exception {
+        mockMvc.perform(get("/stats/{id}/timeseries", "cb").param("granularity", "week"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void test_timeSeries_rangeEndingNearLongMaxIsBadRequest() throws Exception {
+        when(analyticsService.getTimeSeries(anyString(), anyLong(), anyLong(), any(Granularity.class)))
+            .thenThrow(new IllegalArgumentException("'to' must not be more than one bucket in the future"));
+        mockMvc.perform(get("/stats/{id}/timeseries", "cb")
+                .param("from", "9223372029654775807").param("to", "9223372036854775807"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Bad Request"));
+    }
+}
@@ -0,0 +1,113 @@
+package urlshortener.app.repository;
+
+import ai.grakn.redismock.RedisServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IDRangeLeaserTest {
+    private static final int NODES = 4;
+    private static final int THREADS = 32;
+    private static final int IDS_PER_THREAD = 5000;
+
+    private static RedisServer server;
+    private static RedisClient redisClient;
+
+    @BeforeClass
+    public static void setupServer() throws IOException {
+        server = RedisServer.newRedisServer(6791);
+        server.start();
+        redisClient = new RedisClient(server.getHost(), server.getBindPort());
+    }
+
+    @AfterClass
+    public static void shutdownServer() throws IOException {
+        redisClient.close();
+        server.stop();
+    }
+
+    private static IDRangeLeaser startNode(String counterKey) {
+        return new IDRangeLeaser(size -> redisClient.execute(jedis -> jedis.incrBy(counterKey, size)), 8, 512, 5);
+    }
+
+    @Test
+    public void test_nextId_singleNodeIsSequentialFromZero() {
+        IDRangeLeaser leaser = startNode("leaser:sequential");
+        for (long expected = 0; expected < 1000; ++expected) {
+            assertEquals(expected, leaser.nextId());
+        }
+        leaser.close();
+    }
+
+    @Test
+    public void test_nextId_noDuplicatesAcrossThreadsNodesAndRestarts() throws Exception {
+        String counterKey = "leaser:concurrent";
+        AtomicReferenceArray<IDRangeLeaser> nodes = new AtomicReferenceArray<>(NODES);
+        for (int i = 0; i < NODES; ++i) {
+            nodes.set(i, startNode(counterKey));
+        }
+
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        Set<Long> duplicates = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; ++t) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < IDS_PER_THREAD; ++i) {
+                    int node = random.nextInt(NODES);
+                    if (random.nextInt(1000) == 0) {
+                        // Simulated crash + restart: the remainder of the block is abandoned
+                        IDRangeLeaser restarted = startNode(counterKey);
+                        nodes.getAndSet(node, restarted).close();
+                    }
+                    long id = nodes.get(node).nextId();
+                    if (!issued.add(id)) {
+                        duplicates.add(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        for (int i = 0; i < NODES; ++i) {
+            nodes.get(i).close();
+        }
+
+        assertTrue("Duplicate IDs issued: " + duplicates, duplicates.isEmpty());
+        assertEquals(THREADS * IDS_PER_THREAD, issued.size());
+    }
+
+    @Test
+    public void test_blockSize_growsUnderSustainedLoad() {
+        IDRangeLeaser leaser = startNode("leaser:adaptive");
+        for (int i = 0; i < 20000; ++i) {
+            leaser.nextId();
+        }
+        assertTrue(leaser.getBlockSize() > 8);
+        leaser.close();
+    }
+}
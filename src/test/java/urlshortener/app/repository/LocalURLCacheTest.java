@@ -0,0 +1,47 @@
+package urlshortener.app.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import urlshortener.app.common.RedirectResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LocalURLCacheTest {
+
+    @Test
+    public void test_put_precomputesFullRedirectResponseOnce() {
+        LocalURLCache cache = new LocalURLCache(new SimpleMeterRegistry(), 100, 60, "private, max-age=60");
+        cache.put("bX", "example.com/page");
+
+        RedirectResponse redirect = cache.getRedirect("bX");
+        assertSame(redirect, cache.getRedirect("bX"));
+        assertEquals(302, redirect.getStatus());
+        assertEquals("http://example.com/page", redirect.getLocation());
+        assertEquals("HTTP/1.1 302 Found\r\n"
+                + "Location: http://example.com/page\r\n"
+                + "Cache-Control: private, max-age=60\r\n"
+                + "Content-Length: 0\r\n\r\n",
+            new String(redirect.getHttpResponse(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_responseBytes_trackPutsReplacementsAndInvalidation() {
+        LocalURLCache cache = new LocalURLCache(new SimpleMeterRegistry(), 100, 60);
+        cache.put("bX", "example.com/a");
+        long oneEntry = cache.getRedirect("bX").retainedBytes();
+        assertEquals(oneEntry, cache.responseBytes());
+
+        // A changed mapping replaces the precomputed response
+        cache.put("bX", "example.com/longer/path");
+        assertEquals("http://example.com/longer/path", cache.getRedirect("bX").getLocation());
+        assertEquals(cache.getRedirect("bX").retainedBytes(), cache.responseBytes());
+
+        cache.invalidate("bX");
+        assertNull(cache.getRedirect("bX"));
+        assertEquals(0, cache.responseBytes());
+    }
+}
@@ -0,0 +1,163 @@
+package urlshortener.app.repository;
+
+import ai.grakn.redismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisException;
+import urlshortener.app.exception.RedisUnavailableException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RedisClientTest {
+    private static final int PARALLEL_REQUESTS = 200;
+    private static final int COMMANDS_PER_REQUEST = 50;
+
+    private static RedisServer server;
+
+    @BeforeClass
+    public static void setupServer() throws IOException {
+        server = RedisServer.newRedisServer(6792);
+        server.start();
+    }
+
+    @AfterClass
+    public static void shutdownServer() throws IOException {
+        server.stop();
+    }
+
+    @Test
+    public void test_execute_noCorruptedRepliesUnderParallelLoad() throws Exception {
+        // Fewer connections than callers so borrows contend and connections are reused
+        RedisClient redisClient = new RedisClient(server.getHost(), server.getBindPort(), 16, 10_000,
+            new SimpleMeterRegistry());
+        ExecutorService pool = Executors.newFixedThreadPool(PARALLEL_REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int r = 0; r < PARALLEL_REQUESTS; ++r) {
+            String key = "stress:" + r;
+            futures.add(pool.submit(() -> {
+                start.await();
+                int mismatches = 0;
+                for (int i = 0; i < COMMANDS_PER_REQUEST; ++i) {
+                    String value = key + ":" + i;
+                    redisClient.execute(jedis -> jedis.set(key, value));
+                    // Any reply interleaving between callers shows up as someone else's value
+                    if (!value.equals(redisClient.execute(jedis -> jedis.get(key)))) {
+                        ++mismatches;
+                    }
+                }
+                return mismatches;
+            }));
+        }
+        start.countDown();
+
+        for (Future<Integer> future : futures) {
+            assertEquals(0, (int) future.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        redisClient.close();
+    }
+
+    @Test
+    public void test_execute_countsBorrowTimeoutsWhenPoolExhausted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RedisClient redisClient = new RedisClient(server.getHost(), server.getBindPort(), 1, 50, registry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> redisClient.execute(jedis -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        holding.await();
+
+        try {
+            redisClient.execute(jedis -> jedis.ping());
+            fail("Expected borrow to time out");
+        } catch (JedisException expected) {
+            // pool exhausted
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        assertEquals(1.0, registry.get("urlshortener.redis.pool.borrow.timeouts").counter().count(), 0.0);
+        redisClient.close();
+    }
+
+    @Test
+    public void test_circuitBreaker_opensWhenRedisDiesAndClosesWhenItReturns() throws Exception {
+        int port = 6793;
+        RedisServer flaky = RedisServer.newRedisServer(port);
+        flaky.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(registry, 4, 2, 0.5, 100, 400);
+        RedisClient redisClient = new RedisClient(flaky.getHost(), port, 2, 200, breaker, registry);
+
+        redisClient.execute(jedis -> jedis.set("circuit", "up"));
+        assertEquals(RedisCircuitBreaker.State.CLOSED, redisClient.getCircuitState());
+
+        // Kill Redis: failures trip the breaker
+        flaky.stop();
+        for (int i = 0; i < 10 && redisClient.getCircuitState() != RedisCircuitBreaker.State.OPEN; ++i) {
+            try {
+                redisClient.execute(jedis -> jedis.get("circuit"));
+            } catch (RuntimeException expected) {
+                // connection refused / reset
+            }
+        }
+        assertEquals(RedisCircuitBreaker.State.OPEN, redisClient.getCircuitState());
+        assertFalse(redisClient.isAvailable());
+        try {
+            redisClient.execute(jedis -> jedis.get("circuit"));
+            fail("Open circuit should fail fast");
+        } catch (RedisUnavailableException expected) {
+            // no connection attempted
+        }
+
+        // Restore Redis: a half-open probe closes the breaker again without a restart
+        flaky = RedisServer.newRedisServer(port);
+        flaky.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (redisClient.getCircuitState() != RedisCircuitBreaker.State.CLOSED
+                && System.currentTimeMillis() < deadline) {
+            try {
+                redisClient.execute(jedis -> jedis.ping());
+            } catch (RuntimeException stillRecovering) {
+                Thread.sleep(50);
+            }
+        }
+        assertEquals(RedisCircuitBreaker.State.CLOSED, redisClient.getCircuitState());
+        assertTrue(redisClient.isAvailable());
+        assertEquals("PONG", redisClient.execute(jedis -> jedis.ping()));
+
+        assertTrue(registry.get("urlshortener.redis.circuit.transitions")
+            .tag("from", "CLOSED").tag("to", "OPEN").counter().count() >= 1);
+        assertTrue(registry.get("urlshortener.redis.circuit.transitions")
+            .tag("from", "HALF_OPEN").tag("to", "CLOSED").counter().count() >= 1);
+
+        redisClient.close();
+        flaky.stop();
+    }
+}
@@ -0,0 +1,115 @@
+package urlshortener.app.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import urlshortener.app.model.ClickRollup.Granularity;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class URLAnalyticsBatchUpsertImplTest {
+    private JdbcTemplate jdbcTemplate;
+    private URLAnalyticsBatchUpsertImpl upsert;
+
+    @Before
+    public void setup() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:analytics-upsert;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("drop table if exists url_analytics");
+        jdbcTemplate.execute("drop table if exists click_rollups");
+        jdbcTemplate.execute("create table url_analytics (short_key varchar(255) not null primary key, "
+            + "total_clicks bigint not null, last_accessed_at bigint not null, created_at bigint not null, "
+            + "clicks_today bigint, last_aggregation_date varchar(255))");
+        jdbcTemplate.execute("create table click_rollups (short_key varchar(255) not null, "
+            + "granularity varchar(8) not null, bucket_start bigint not null, clicks bigint not null, "
+            + "primary key (short_key, granularity, bucket_start))");
+        upsert = new URLAnalyticsBatchUpsertImpl(jdbcTemplate);
+    }
+
+    @Test
+    public void test_addClicks_incrementsExistingRowsAndInsertsMissingOnes() {
+        jdbcTemplate.update("insert into url_analytics values ('existing', 10, 500, 1, 4, ?)",
+            LocalDate.now().toString());
+        jdbcTemplate.update("insert into url_analytics values ('yesterday', 7, 500, 1, 7, ?)",
+            LocalDate.now().minusDays(1).toString());
+
+        upsert.addClicks(Arrays.asList(
+            new ClickDelta("existing", 5, 400),
+            new ClickDelta("yesterday", 2, 900),
+            new ClickDelta("fresh", 3, 700)));
+
+        Map<String, Object> existing = row("existing");
+        assertEquals(15L, existing.get("TOTAL_CLICKS"));
+        assertEquals(9L, existing.get("CLICKS_TODAY"));
+        // Last access never moves backwards
+        assertEquals(500L, existing.get("LAST_ACCESSED_AT"));
+
+        Map<String, Object> yesterday = row("yesterday");
+        assertEquals(9L, yesterday.get("TOTAL_CLICKS"));
+        assertEquals(2L, yesterday.get("CLICKS_TODAY"));
+        assertEquals(900L, yesterday.get("LAST_ACCESSED_AT"));
+        assertEquals(LocalDate.now().toString(), yesterday.get("LAST_AGGREGATION_DATE"));
+
+        Map<String, Object> fresh = row("fresh");
+        assertEquals(3L, fresh.get("TOTAL_CLICKS"));
+        assertEquals(3L, fresh.get("CLICKS_TODAY"));
+        assertEquals(700L, fresh.get("LAST_ACCESSED_AT"));
+    }
+
+    @Test
+    public void test_addClicks_appliedTwiceAddsTwice() {
+        upsert.addClicks(Collections.singletonList(new ClickDelta("twice", 4, 100)));
+        upsert.addClicks(Collections.singletonList(new ClickDelta("twice", 4, 200)));
+
+        assertEquals(8L, row("twice").get("TOTAL_CLICKS"));
+    }
+
+    @Test
+    public void test_addClicks_rollsUpByHourAndDay() {
+        long day = 1000 * Granularity.DAY.getMillis();
+        long hour = Granularity.HOUR.getMillis();
+        upsert.addClicks(Arrays.asList(
+            new ClickDelta("rolled", 2, day + 60000),
+            new ClickDelta("rolled", 3, day + 120000),
+            new ClickDelta("rolled", 4, day + 5 * hour)));
+        upsert.addClicks(Collections.singletonList(new ClickDelta("rolled", 1, day + 5 * hour + 1)));
+
+        assertEquals(10L, row("rolled").get("TOTAL_CLICKS"));
+        assertEquals(5L, rollup(Granularity.HOUR, day));
+        assertEquals(5L, rollup(Granularity.HOUR, day + 5 * hour));
+        assertEquals(10L, rollup(Granularity.DAY, day));
+    }
+
+    @Test
+    public void test_createMissing_insertsZeroedRowsAndKeepsExistingOnes() {
+        jdbcTemplate.update("insert into url_analytics values ('clicked', 10, 500, 1, 4, ?)",
+            LocalDate.now().toString());
+
+        upsert.createMissing(Arrays.asList("clicked", "new1", "new2"));
+
+        Map<String, Object> clicked = row("clicked");
+        assertEquals(10L, clicked.get("TOTAL_CLICKS"));
+        assertEquals(1L, clicked.get("CREATED_AT"));
+        Map<String, Object> created = row("new1");
+        assertEquals(0L, created.get("TOTAL_CLICKS"));
+        assertEquals(0L, created.get("CLICKS_TODAY"));
+        assertTrue((Long) created.get("CREATED_AT") > 1L);
+        assertEquals(0L, row("new2").get("TOTAL_CLICKS"));
+    }
+
+    private long rollup(Granularity granularity, long bucketStart) {
+        return jdbcTemplate.queryForObject("select clicks from click_rollups "
+            + "where short_key = 'rolled' and granularity = ? and bucket_start = ?",
+            Long.class, granularity.name(), bucketStart);
+    }
+
+    private Map<String, Object> row(String shortKey) {
+        return jdbcTemplate.queryForMap("select * from url_analytics where short_key = ?", shortKey);
+    }
+}
@@ -9,6 +9,7 @@ import redis.clients.jedis.Jedis;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class URLRepositoryTest {
     private static RedisServer server;
@@ -23,11 +24,59 @@ public class URLRepositoryTest {
 
     @Test
     public void test_incrementID_StartsAt0AndIncrements() {
-        URLRepository urlRepository = new URLRepository(new Jedis(server.getHost(), server.getBindPort())
+        URLRepository urlRepository = new URLRepository(new RedisClient(server.getHost(), server.getBindPort())
                 , "id", "url:");
         for (long expectedId = 0L; expectedId < 50L; ++expectedId) {
             long actualId = urlRepository.incrementID();
             assertEquals(expectedId, actualId);
         }
     }
+
+    @Test
+    public void test_saveUrl_entriesExpireIndependently() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        URLRepository urlRepository = new URLRepository(
+                new RedisClient(server.getHost(), server.getBindPort()), "id", "url:", 600);
+
+        urlRepository.saveUrl("first", "first.com");
+        // Stand in for time passing: "first" is about to expire
+        jedis.expire("url:first", 5);
+        // With the old single hash this write pushed the expiry of "first" out as well
+        urlRepository.saveUrl("second", "second.com");
+
+        long firstTtl = jedis.ttl("url:first");
+        assertTrue("first TTL was " + firstTtl, firstTtl > 0 && firstTtl <= 5);
+        assertTrue(jedis.ttl("url:second") > 5);
+    }
+
+    @Test
+    public void test_getUrl_refreshesTtlOfAccessedEntryOnly() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        URLRepository urlRepository = new URLRepository(
+                new RedisClient(server.getHost(), server.getBindPort()), "id", "url:", 600);
+
+        urlRepository.saveUrl("hot", "hot.com");
+        urlRepository.saveUrl("cold", "cold.com");
+        jedis.expire("url:hot", 5);
+        jedis.expire("url:cold", 5);
+
+        assertEquals("hot.com", urlRepository.getUrl("hot"));
+
+        assertTrue(jedis.ttl("url:hot") > 5);
+        long coldTtl = jedis.ttl("url:cold");
+        assertTrue("cold TTL was " + coldTtl, coldTtl > 0 && coldTtl <= 5);
+    }
+
+    @Test
+    public void test_saveUrlHash_usesPerKeyTtl() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        URLRepository urlRepository = new URLRepository(
+                new RedisClient(server.getHost(), server.getBindPort()), "id", "url:", 60);
+
+        urlRepository.saveUrlHash("abc123", "bX");
+
+        assertEquals("bX", urlRepository.getShortKeyFromHash("abc123"));
+        long ttl = jedis.ttl("hash:abc123");
+        assertTrue(ttl > 0 && ttl <= 60);
+    }
 }
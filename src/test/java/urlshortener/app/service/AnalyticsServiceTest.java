@@ -1,16 +1,27 @@
 package urlshortener.app.service;
 
 import ai.grakn.redismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import redis.clients.jedis.Jedis;
+import urlshortener.app.model.ClickRollup;
+import urlshortener.app.model.ClickRollup.Granularity;
 import urlshortener.app.model.URLAnalytics;
+import urlshortener.app.repository.ClickDelta;
+import urlshortener.app.repository.RedisClient;
 import urlshortener.app.repository.URLAnalyticsRepository;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,7 +45,8 @@ public class AnalyticsServiceTest {
     public void test_recordClick_incrementsCounterInRedis() {
         Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
         URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
-        AnalyticsService service = new AnalyticsService(jedis, mockRepo);
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mockRepo);
         
         String shortKey = "testABC";
         
@@ -43,15 +55,123 @@ public class AnalyticsServiceTest {
             service.recordClick(shortKey);
         }
         
-        // Verify Redis counter
-        String clicksKey = "analytics:" + shortKey + ":clicks";
-        String count = jedis.get(clicksKey);
-        assertEquals("5", count);
+        // Verify the pending minute buckets
+        assertEquals(5L, pendingClicks(jedis, shortKey));
     }
     
     @Test
-    public void test_getStats_syncesRedisToDatabase() {
+    public void test_recordClickAsync_concurrentClicksAndFlushesLoseNothing() throws Exception {
         Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        String[] keys = { "stripedA", "stripedB", "stripedC", "stripedD" };
+        // Flushes every millisecond on its own thread, plus two threads flushing back to back
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mock(URLAnalyticsRepository.class),
+            new SimpleMeterRegistry(), 1);
+        
+        int producers = 8;
+        int clicksPerProducer = 50000;
+        AtomicBoolean producing = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int f = 0; f < 2; f++) {
+            threads.add(new Thread(() -> {
+                while (producing.get()) {
+                    service.flushClicks();
+                }
+            }));
+        }
+        List<Thread> producerThreads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            producerThreads.add(new Thread(() -> {
+                for (int i = 0; i < clicksPerProducer; i++) {
+                    service.recordClickAsync(keys[i % keys.length]);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        producerThreads.forEach(Thread::start);
+        for (Thread thread : producerThreads) {
+            thread.join();
+        }
+        producing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Whatever the racing flushes missed is written on close
+        service.close();
+        
+        long total = 0;
+        for (String key : keys) {
+            total += pendingClicks(jedis, key);
+        }
+        assertEquals((long) producers * clicksPerProducer, total);
+        assertEquals((long) producers * clicksPerProducer / keys.length, pendingClicks(jedis, "stripedA"));
+        assertNotNull(jedis.get("analytics:stripedA:lastAccess"));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_flushClicks_keepsClicksOfAFailedFlushForTheNextOne() {
+        // Redis down, and the DB fallback fails once
+        URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
+        doThrow(new IllegalStateException("DB down")).doNothing().when(mockRepo).addClicks(any());
+        AnalyticsService service = new AnalyticsService(new RedisClient("localhost", 9999), mockRepo,
+            new SimpleMeterRegistry(), 60000);
+
+        for (int i = 0; i < 3; i++) {
+            service.recordClickAsync("retried");
+        }
+        service.flushClicks();
+        for (int i = 0; i < 2; i++) {
+            service.recordClickAsync("retried");
+        }
+        service.flushClicks();
+        // Nothing new: no third write
+        service.flushClicks();
+
+        ArgumentCaptor<Collection<ClickDelta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(mockRepo, times(2)).addClicks(deltas.capture());
+        assertEquals(3L, deltas.getAllValues().get(0).iterator().next().getClicks());
+        assertEquals(5L, deltas.getAllValues().get(1).iterator().next().getClicks());
+        service.close();
+    }
+
+    @Test
+    public void test_recordClickAsync_dropsAndCountsAfterClose() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mock(URLAnalyticsRepository.class),
+            registry, 1000);
+        service.close();
+        
+        service.recordClickAsync("late");
+        assertEquals(1.0, registry.get("urlshortener.analytics.clicks.dropped").counter().count(), 0.0);
+    }
+    
+    @Test
+    public void test_recordClickAsync_dropsAndCountsNewKeysPastTheCap() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mock(URLAnalyticsRepository.class),
+            registry, 60000, 2);
+
+        service.recordClickAsync("cappedA");
+        service.recordClickAsync("cappedB");
+        service.recordClickAsync("cappedC");
+        // Keys that already have a counter keep counting
+        service.recordClickAsync("cappedA");
+
+        assertEquals(1.0, registry.get("urlshortener.analytics.clicks.dropped").counter().count(), 0.0);
+        assertEquals(2.0, registry.get("urlshortener.analytics.counters").gauge().value(), 0.0);
+        service.flushClicks();
+        assertEquals(2L, pendingClicks(jedis, "cappedA"));
+        assertEquals(1L, pendingClicks(jedis, "cappedB"));
+        assertEquals(0L, pendingClicks(jedis, "cappedC"));
+        service.close();
+    }
+
+    @Test
+    public void test_getStats_addsPendingRedisClicksWithoutWriting() {
         URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
         
         String shortKey = "testXYZ";
@@ -59,41 +179,96 @@ public class AnalyticsServiceTest {
         analytics.setTotalClicks(10L);
         
         when(mockRepo.findById(shortKey)).thenReturn(Optional.of(analytics));
-        when(mockRepo.save(any(URLAnalytics.class))).thenReturn(analytics);
         
-        AnalyticsService service = new AnalyticsService(jedis, mockRepo);
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mockRepo);
         
-        // Simulate 15 clicks in Redis
-        String clicksKey = "analytics:" + shortKey + ":clicks";
-        jedis.set(clicksKey, "15");
+        // 5 clicks in Redis not yet synced to the DB
+        for (int i = 0; i < 5; i++) {
+            service.recordClick(shortKey);
+        }
         
-        // Get stats should sync
         Map<String, Object> stats = service.getStats(shortKey);
         
-        // Verify synced count
+        // DB baseline + pending, and the read never writes
         assertEquals(15L, stats.get("totalClicks"));
-        verify(mockRepo, atLeastOnce()).save(any(URLAnalytics.class));
+        verify(mockRepo, never()).save(any(URLAnalytics.class));
+    }
+    
+    @Test
+    public void test_getTimeSeries_zeroFillsBucketsBetweenRollups() {
+        URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
+        long hour = Granularity.HOUR.getMillis();
+        long from = 1000 * hour;
+        when(mockRepo.findRollups("series", Granularity.HOUR, from, from + 4 * hour)).thenReturn(Arrays.asList(
+            rollup(from + hour, 7), rollup(from + 3 * hour, 2)));
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mockRepo);
+        
+        // from is aligned down to its bucket
+        Map<String, Object> series = service.getTimeSeries("series", from + 5, from + 4 * hour, Granularity.HOUR);
+        
+        assertEquals(9L, series.get("totalClicks"));
+        List<?> points = (List<?>) series.get("points");
+        assertEquals(4, points.size());
+        assertEquals(from, ((Map<?, ?>) points.get(0)).get("start"));
+        assertEquals(0L, ((Map<?, ?>) points.get(0)).get("clicks"));
+        assertEquals(7L, ((Map<?, ?>) points.get(1)).get("clicks"));
+        assertEquals(0L, ((Map<?, ?>) points.get(2)).get("clicks"));
+        assertEquals(2L, ((Map<?, ?>) points.get(3)).get("clicks"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void test_getTimeSeries_rejectsRangesWithTooManyBuckets() {
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mock(URLAnalyticsRepository.class));
+        service.getTimeSeries("series", 0, 20000 * Granularity.HOUR.getMillis(), Granularity.HOUR);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void test_getTimeSeries_rejectsRangesEndingPastNow() {
+        AnalyticsService service = new AnalyticsService(
+            new RedisClient(server.getHost(), server.getBindPort()), mock(URLAnalyticsRepository.class));
+        // One bucket short of Long.MAX_VALUE: stepping past the last one would overflow
+        service.getTimeSeries("series", 9223372029654775807L, Long.MAX_VALUE, Granularity.HOUR);
+    }
+    
+    private static long pendingClicks(Jedis jedis, String shortKey) {
+        long clicks = 0;
+        for (String bucket : jedis.hgetAll("analytics:" + shortKey + ":minutes").values()) {
+            clicks += Long.parseLong(bucket);
+        }
+        return clicks;
+    }
+    
+    private static ClickRollup rollup(long bucketStart, long clicks) {
+        ClickRollup rollup = new ClickRollup();
+        rollup.setBucketStart(bucketStart);
+        rollup.setClicks(clicks);
+        return rollup;
     }
     
     @Test
+    @SuppressWarnings("unchecked")
     public void test_recordClick_fallsBackToDB_whenRedisDown() {
         // Simulate Redis down by using wrong port
-        Jedis jedis = new Jedis("localhost", 9999);
+        RedisClient redisClient = new RedisClient("localhost", 9999);
         URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
         
         String shortKey = "testFallback";
-        URLAnalytics analytics = new URLAnalytics(shortKey);
-        
-        when(mockRepo.findById(shortKey)).thenReturn(Optional.of(analytics));
-        when(mockRepo.save(any(URLAnalytics.class))).thenReturn(analytics);
         
-        AnalyticsService service = new AnalyticsService(jedis, mockRepo);
+        AnalyticsService service = new AnalyticsService(redisClient, mockRepo);
         
         // Should fallback to DB
         service.recordClick(shortKey);
         
-        // Verify DB was called
-        verify(mockRepo, atLeastOnce()).findById(shortKey);
-        verify(mockRepo, atLeastOnce()).save(any(URLAnalytics.class));
+        // One increment applied in SQL, no entity read-modify-write
+        ArgumentCaptor<Collection<ClickDelta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(mockRepo).addClicks(deltas.capture());
+        ClickDelta delta = deltas.getValue().iterator().next();
+        assertEquals(shortKey, delta.getShortKey());
+        assertEquals(1L, delta.getClicks());
+        verify(mockRepo, never()).findById(shortKey);
+        verify(mockRepo, never()).save(any(URLAnalytics.class));
     }
 }
@@ -0,0 +1,214 @@
+package urlshortener.app.service;
+
+import ai.grakn.redismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import redis.clients.jedis.Jedis;
+import urlshortener.app.repository.ClickDelta;
+import urlshortener.app.repository.RedisClient;
+import urlshortener.app.repository.URLAnalyticsRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AnalyticsSyncServiceTest {
+    private static RedisServer server;
+
+    @BeforeClass
+    public static void setupServer() throws IOException {
+        server = RedisServer.newRedisServer(6794);
+        server.start();
+    }
+
+    @AfterClass
+    public static void shutdownServer() throws IOException {
+        server.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_syncDirtyKeys_persistsDeltasInBatchesAndClearsDirtySet() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        RedisClient redisClient = new RedisClient(server.getHost(), server.getBindPort());
+        URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
+
+        AnalyticsService analytics = new AnalyticsService(redisClient, mockRepo);
+        for (int i = 0; i < 3; i++) {
+            analytics.recordClick("syncA");
+        }
+        analytics.recordClick("syncB");
+        analytics.recordClick("syncC");
+
+        // Batch size 2 forces two batches for three dirty keys
+        AnalyticsSyncService sync = new AnalyticsSyncService(redisClient, mockRepo, new SimpleMeterRegistry(),
+            60000, 2, 600000);
+        assertEquals(3, sync.syncDirtyKeys());
+
+        ArgumentCaptor<Collection<ClickDelta>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(mockRepo, times(2)).addClicks(batches.capture());
+        Map<String, Long> totals = new HashMap<>();
+        for (Collection<ClickDelta> batch : batches.getAllValues()) {
+            for (ClickDelta delta : batch) {
+                totals.merge(delta.getShortKey(), delta.getClicks(), Long::sum);
+            }
+        }
+        assertEquals(Long.valueOf(3L), totals.get("syncA"));
+        assertEquals(Long.valueOf(1L), totals.get("syncB"));
+        assertEquals(Long.valueOf(1L), totals.get("syncC"));
+        assertEquals(0L, pendingClicks(jedis, "syncA"));
+        assertNull(jedis.spop("analytics:dirty"));
+
+        // Nothing dirty, nothing written
+        assertEquals(0, sync.syncDirtyKeys());
+        verify(mockRepo, times(2)).addClicks(any());
+        sync.close();
+    }
+
+    @Test
+    public void test_syncDirtyKeys_restoresPendingClicksWhenDBWriteFails() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        RedisClient redisClient = new RedisClient(server.getHost(), server.getBindPort());
+        URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
+        doThrow(new RuntimeException("DB down")).when(mockRepo).addClicks(any());
+
+        AnalyticsService analytics = new AnalyticsService(redisClient, mockRepo);
+        analytics.recordClick("syncFail");
+        analytics.recordClick("syncFail");
+
+        AnalyticsSyncService sync = new AnalyticsSyncService(redisClient, mockRepo, new SimpleMeterRegistry(),
+            60000, 10, 600000);
+        try {
+            sync.syncDirtyKeys();
+            fail("DB failure should propagate");
+        } catch (RuntimeException expected) {
+            // re-marked dirty for the next run
+        }
+
+        assertEquals(2L, pendingClicks(jedis, "syncFail"));
+        assertEquals("syncFail", jedis.spop("analytics:dirty"));
+        assertTrue(jedis.smembers("analytics:runs").isEmpty());
+        sync.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_syncDirtyKeys_recoversClicksOfANodeThatDiedBeforeDroppingItsRun() {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        RedisClient redisClient = new RedisClient(server.getHost(), server.getBindPort());
+        AnalyticsService analytics = new AnalyticsService(redisClient, mock(URLAnalyticsRepository.class));
+        jedis.del("analytics:dirty");
+        analytics.recordClick("orphanTaken");
+        analytics.recordClick("orphanTaken");
+        analytics.recordClick("orphanClaimed");
+
+        // Dies after the RENAME, before the DB commit: an Error skips the restore like a killed process
+        URLAnalyticsRepository dyingRepo = mock(URLAnalyticsRepository.class);
+        doThrow(new AssertionError("node died")).when(dyingRepo).addClicks(any());
+        AnalyticsSyncService dying = new AnalyticsSyncService(redisClient, dyingRepo, new SimpleMeterRegistry(),
+            60000, 1, 600000);
+        jedis.srem("analytics:dirty", "orphanClaimed");
+        try {
+            dying.syncDirtyKeys();
+            fail("The dying node should not finish its run");
+        } catch (AssertionError expected) {
+            // taken hash and run left behind
+        }
+        dying.close();
+        assertEquals(0L, pendingClicks(jedis, "orphanTaken"));
+        assertFalse(jedis.sismember("analytics:dirty", "orphanTaken"));
+        // Another run died after claiming a key, before its RENAME
+        String claimedOnly = (System.currentTimeMillis() - 60000) + "-claimedOnly";
+        jedis.sadd("analytics:runs", claimedOnly);
+        jedis.sadd("analytics:run:" + claimedOnly, "orphanClaimed");
+
+        URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
+        // Runs younger than the orphan age are left to their node
+        AnalyticsSyncService patient = new AnalyticsSyncService(redisClient, mockRepo, new SimpleMeterRegistry(),
+            60000, 10, 600000);
+        assertEquals(0, patient.syncDirtyKeys());
+        patient.close();
+
+        AnalyticsSyncService sync = new AnalyticsSyncService(redisClient, mockRepo, new SimpleMeterRegistry(),
+            60000, 10, 0);
+        assertEquals(2, sync.syncDirtyKeys());
+
+        ArgumentCaptor<Collection<ClickDelta>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(mockRepo).addClicks(batches.capture());
+        Map<String, Long> totals = new HashMap<>();
+        for (ClickDelta delta : batches.getValue()) {
+            totals.merge(delta.getShortKey(), delta.getClicks(), Long::sum);
+        }
+        assertEquals(Long.valueOf(2L), totals.get("orphanTaken"));
+        assertEquals(Long.valueOf(1L), totals.get("orphanClaimed"));
+        assertTrue(jedis.smembers("analytics:runs").isEmpty());
+        assertFalse(jedis.exists("analytics:run:" + claimedOnly));
+        sync.close();
+    }
+
+    @Test
+    public void test_syncDirtyKeys_twoConcurrentSyncsPersistEveryClickOnce() throws Exception {
+        Jedis jedis = new Jedis(server.getHost(), server.getBindPort());
+        RedisClient redisClient = new RedisClient(server.getHost(), server.getBindPort());
+        URLAnalyticsRepository mockRepo = mock(URLAnalyticsRepository.class);
+        AtomicLong persisted = new AtomicLong();
+        doAnswer(invocation -> {
+            Collection<ClickDelta> deltas = invocation.getArgument(0);
+            deltas.forEach(delta -> persisted.addAndGet(delta.getClicks()));
+            return null;
+        }).when(mockRepo).addClicks(any());
+
+        AnalyticsService analytics = new AnalyticsService(redisClient, mockRepo);
+        // Two nodes' sync services racing on the same keys while clicks keep arriving
+        List<AnalyticsSyncService> syncs = Arrays.asList(
+            new AnalyticsSyncService(redisClient, mockRepo, new SimpleMeterRegistry(), 60000, 2, 600000),
+            new AnalyticsSyncService(redisClient, mockRepo, new SimpleMeterRegistry(), 60000, 2, 600000));
+        AtomicBoolean clicking = new AtomicBoolean(true);
+        List<Thread> syncThreads = new ArrayList<>();
+        for (AnalyticsSyncService sync : syncs) {
+            syncThreads.add(new Thread(() -> {
+                while (clicking.get()) {
+                    sync.syncDirtyKeys();
+                }
+            }));
+        }
+        syncThreads.forEach(Thread::start);
+        String[] keys = { "raceA", "raceB", "raceC" };
+        int clicks = 3000;
+        for (int i = 0; i < clicks; i++) {
+            analytics.recordClick(keys[i % keys.length]);
+        }
+        clicking.set(false);
+        for (Thread thread : syncThreads) {
+            thread.join();
+        }
+        syncs.get(0).syncDirtyKeys();
+
+        assertEquals(clicks, persisted.get());
+        for (String key : keys) {
+            assertEquals(0L, pendingClicks(jedis, key));
+        }
+        syncs.forEach(AnalyticsSyncService::close);
+    }
+
+    private static long pendingClicks(Jedis jedis, String shortKey) {
+        long clicks = 0;
+        for (String bucket : jedis.hgetAll("analytics:" + shortKey + ":minutes").values()) {
+            clicks += Long.parseLong(bucket);
+        }
+        return clicks;
+    }
+}
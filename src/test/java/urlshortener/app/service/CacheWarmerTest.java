@@ -0,0 +1,97 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import urlshortener.app.repository.LocalURLCache;
+import urlshortener.app.repository.RedisClient;
+import urlshortener.app.repository.URLAnalyticsRepository;
+import urlshortener.app.repository.URLRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CacheWarmerTest {
+    private SimpleMeterRegistry registry;
+    private Pipeline pipeline;
+    private URLRepository urlRepository;
+    private LocalURLCache localCache;
+    private URLAnalyticsRepository analyticsRepository;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        Jedis jedis = mock(Jedis.class);
+        pipeline = mock(Pipeline.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        urlRepository = new URLRepository(new RedisClient(pool, registry), "id", "url:");
+        localCache = new LocalURLCache(registry, 1000, 60);
+        analyticsRepository = mock(URLAnalyticsRepository.class);
+    }
+
+    private static List<Object[]> rows(int from, int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = from; i < from + count; ++i) {
+            rows.add(new Object[] { "key" + i, "example.com/" + i, null, null, null });
+        }
+        return rows;
+    }
+
+    @Test
+    public void test_warmUp_preloadsTopNIntoBothTiersThenReportsReady() throws Exception {
+        when(analyticsRepository.findHottestMappings(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(0);
+            return rows(page.getPageNumber() * page.getPageSize(), page.getPageSize());
+        });
+        CacheWarmer warmer = new CacheWarmer(analyticsRepository, urlRepository, localCache, registry,
+            true, 250, 100, 4, 5000);
+
+        assertFalse(warmer.isReady());
+        warmer.start();
+        while (!warmer.isReady()) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(250, warmer.getWarmedCount());
+        assertEquals("example.com/0", localCache.get("key0"));
+        assertEquals("example.com/249", localCache.get("key249"));
+        assertNull(localCache.get("key250"));
+        // Three pages (100 + 100 + 50), each written to Redis in one pipeline
+        verify(analyticsRepository, times(3)).findHottestMappings(any(Pageable.class));
+        verify(pipeline, times(3)).sync();
+        verify(pipeline, times(250)).setex(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    public void test_warmUp_reportsReadyAtDeadlineEvenIfStillRunning() throws Exception {
+        when(analyticsRepository.findHottestMappings(any(Pageable.class))).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return rows(0, 100);
+        });
+        CacheWarmer warmer = new CacheWarmer(analyticsRepository, urlRepository, localCache, registry,
+            true, 1000, 100, 2, 200);
+
+        long start = System.currentTimeMillis();
+        warmer.start();
+        while (!warmer.isReady()) {
+            Thread.sleep(10);
+        }
+        long waited = System.currentTimeMillis() - start;
+
+        assertTrue("Readiness should flip at the deadline, took " + waited + "ms", waited < 2000);
+        assertEquals(0, warmer.getWarmedCount());
+    }
+}
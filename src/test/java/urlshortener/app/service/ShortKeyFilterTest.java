@@ -0,0 +1,134 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.repository.URLMappingRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShortKeyFilterTest {
+    // Committed url_mappings rows, id -> short key
+    private final ConcurrentSkipListMap<Long, String> committed = new ConcurrentSkipListMap<>();
+    private URLMappingRepository dbRepository;
+    private SimpleMeterRegistry registry;
+    private ShortKeyFilter filter;
+
+    @Before
+    public void setup() throws Exception {
+        dbRepository = mock(URLMappingRepository.class);
+        when(dbRepository.count()).thenAnswer(invocation -> (long) committed.size());
+        when(dbRepository.findShortKeysAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<Long, String> row : committed.tailMap(afterId, false).entrySet()) {
+                if (rows.size() == page.getPageSize()) {
+                    break;
+                }
+                rows.add(new Object[]{row.getKey(), row.getValue()});
+            }
+            return rows;
+        });
+        registry = new SimpleMeterRegistry();
+        filter = new ShortKeyFilter(dbRepository, registry, 1000, 0.01, 2, 60000, 10);
+    }
+
+    @After
+    public void tearDown() {
+        filter.close();
+    }
+
+    private void commit(long rowId) {
+        committed.put(rowId, keyOf(rowId));
+    }
+
+    private static String keyOf(long rowId) {
+        return IDConverter.createUniqueID(100000L + rowId);
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!filter.isReady()) {
+            assertTrue("Timed out waiting for the initial load", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void test_loadNewRows_picksUpRowsCreatedByAnotherNode() throws Exception {
+        commit(1);
+        commit(2);
+        filter.start();
+        awaitReady();
+        assertFalse(filter.mightContain(keyOf(3)));
+
+        // Another node inserts rows 3 to 5
+        commit(3);
+        commit(4);
+        commit(5);
+        filter.loadNewRows();
+
+        assertTrue(filter.mightContain(keyOf(3)));
+        assertTrue(filter.mightContain(keyOf(4)));
+        assertTrue(filter.mightContain(keyOf(5)));
+    }
+
+    @Test
+    public void test_loadNewRows_rebuildsOnceKeysOutgrowTheSizedCapacity() throws Exception {
+        filter.close();
+        // Sized for 4 keys
+        registry = new SimpleMeterRegistry();
+        filter = new ShortKeyFilter(dbRepository, registry, 4, 0.01, 2, 60000, 10);
+        for (long rowId = 1; rowId <= 3; rowId++) {
+            commit(rowId);
+        }
+        filter.start();
+        awaitReady();
+        double bytesBefore = registry.get("urlshortener.keyfilter.memory.bytes").gauge().value();
+        assertEquals(0.0, registry.get("urlshortener.keyfilter.rebuilds").counter().count(), 0.0);
+
+        for (long rowId = 4; rowId <= 10; rowId++) {
+            commit(rowId);
+        }
+        filter.loadNewRows();
+
+        assertEquals(1.0, registry.get("urlshortener.keyfilter.rebuilds").counter().count(), 0.0);
+        assertTrue(registry.get("urlshortener.keyfilter.memory.bytes").gauge().value() > bytesBefore);
+        for (long rowId = 1; rowId <= 10; rowId++) {
+            assertTrue(filter.mightContain(keyOf(rowId)));
+        }
+        // Re-reading the overlap window adds no keys, so no second rebuild
+        filter.loadNewRows();
+        assertEquals(1.0, registry.get("urlshortener.keyfilter.rebuilds").counter().count(), 0.0);
+    }
+
+    @Test
+    public void test_loadNewRows_picksUpRowCommittedAfterAHigherId() throws Exception {
+        commit(1);
+        // Row 2 is allocated by a slow transaction on another node, row 3 commits first
+        commit(3);
+        filter.start();
+        awaitReady();
+        assertFalse(filter.mightContain(keyOf(2)));
+
+        commit(2);
+        filter.loadNewRows();
+
+        assertTrue(filter.mightContain(keyOf(2)));
+    }
+}
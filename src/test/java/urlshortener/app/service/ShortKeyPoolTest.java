@@ -0,0 +1,118 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.common.IdGenerator;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShortKeyPoolTest {
+    private SimpleMeterRegistry registry;
+    private ShortKeyPool pool;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting for the pool", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private double depthGauge() {
+        return registry.get("urlshortener.keypool.depth").gauge().value();
+    }
+
+    @Test
+    public void test_take_issuesPreMintedKeysInOrder() throws Exception {
+        AtomicLong ids = new AtomicLong(100);
+        pool = new ShortKeyPool(ids::getAndIncrement, registry, 16, 4, 60000);
+        pool.start();
+        await(() -> pool.getDepth() == 16);
+        assertEquals(16.0, depthGauge(), 0.0);
+
+        assertEquals(IDConverter.createUniqueID(100L), pool.take());
+        assertEquals(IDConverter.createUniqueID(101L), pool.take());
+        assertEquals(14, pool.getDepth());
+        assertEquals(0.0, registry.get("urlshortener.keypool.starvation").counter().count(), 0.0);
+    }
+
+    @Test
+    public void test_take_belowLowWatermarkRefillsToCapacity() throws Exception {
+        AtomicLong ids = new AtomicLong();
+        // Long interval: only the low-watermark wake-up can bring the pool back
+        pool = new ShortKeyPool(ids::getAndIncrement, registry, 16, 4, 60000);
+        pool.start();
+        await(() -> pool.getDepth() == 16);
+
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < 13; ++i) {
+            issued.add(pool.take());
+        }
+        await(() -> pool.getDepth() == 16);
+        // Initial fill plus at least one watermark refill
+        assertTrue(registry.get("urlshortener.keypool.refill").timer().count() >= 2);
+        for (int i = 0; i < 16; ++i) {
+            issued.add(pool.take());
+        }
+        assertEquals(29, issued.size());
+    }
+
+    @Test
+    public void test_take_onEmptyPoolMintsInlineAndCountsStarvation() {
+        AtomicLong ids = new AtomicLong(7);
+        // Never started, so the pool is empty
+        pool = new ShortKeyPool(ids::getAndIncrement, registry, 16, 4, 60000);
+
+        assertEquals(IDConverter.createUniqueID(7L), pool.take());
+        assertEquals(1.0, registry.get("urlshortener.keypool.starvation").counter().count(), 0.0);
+    }
+
+    @Test
+    public void test_refill_stopsAtFirstFailureButInlineMintUsesFallback() throws Exception {
+        AtomicInteger primaryCalls = new AtomicInteger();
+        AtomicLong fallbackIds = new AtomicLong(500);
+        IdGenerator degraded = new IdGenerator() {
+            @Override
+            public long nextId() {
+                return fallbackIds.getAndIncrement();
+            }
+
+            @Override
+            public long nextIdWithoutFallback() {
+                primaryCalls.incrementAndGet();
+                throw new IllegalStateException("Redis ID lease unavailable");
+            }
+        };
+        pool = new ShortKeyPool(degraded, registry, 10000, 2500, 60000);
+        pool.start();
+        await(() -> registry.get("urlshortener.keypool.refill.failures").counter().count() == 1.0);
+
+        // One failed call aborted the whole refill of 10000 keys
+        assertEquals(1, primaryCalls.get());
+        assertEquals(0, pool.getDepth());
+
+        assertEquals(IDConverter.createUniqueID(500L), pool.take());
+    }
+}
@@ -0,0 +1,280 @@
+package urlshortener.app.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.Invocation;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import urlshortener.app.common.IDConverter;
+import urlshortener.app.common.RedirectPolicy;
+import urlshortener.app.common.RedirectResponse;
+import urlshortener.app.exception.ShortKeyNotFoundException;
+import urlshortener.app.model.URLMapping;
+import urlshortener.app.repository.LocalURLCache;
+import urlshortener.app.repository.NegativeURLCache;
+import urlshortener.app.repository.RedisClient;
+import urlshortener.app.repository.URLMappingRepository;
+import urlshortener.app.repository.URLRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class URLConverterServiceTest {
+    private Jedis jedis;
+    private Pipeline pipeline;
+    private URLMappingRepository dbRepository;
+    private ShortKeyFilter shortKeyFilter;
+    private NegativeURLCache negativeCache;
+    private URLConverterService service;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        jedis = mock(Jedis.class);
+        pipeline = mock(Pipeline.class);
+        Response<String> miss = mock(Response.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pipeline.get(anyString())).thenReturn(miss);
+
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RedisClient redisClient = new RedisClient(pool, registry);
+        URLRepository urlRepository = new URLRepository(redisClient, "id", "url:");
+
+        dbRepository = mock(URLMappingRepository.class);
+        when(dbRepository.findByUrlHash(anyString())).thenReturn(Optional.empty());
+        when(dbRepository.save(any(URLMapping.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AtomicLong ids = new AtomicLong(1000);
+        ShortKeyPool shortKeyPool = new ShortKeyPool(ids::getAndIncrement, registry, 16, 4, 50);
+        shortKeyFilter = new ShortKeyFilter(dbRepository, registry, 1000, 0.01, 100, 60000, 1000);
+        negativeCache = new NegativeURLCache(redisClient, registry, 1000, 60, 0);
+        service = new URLConverterService(urlRepository, dbRepository, shortKeyPool,
+            new LocalURLCache(registry, 1000, 60), negativeCache, shortKeyFilter, registry, 2000, 4);
+
+        // Ignore the health-check ping issued while wiring things up
+        clearInvocations(jedis, pipeline);
+    }
+
+    /**
+     * Every direct command on the connection is one round trip, and so is each pipeline sync
+     */
+    private int redisRoundTrips() {
+        int roundTrips = 0;
+        for (Invocation invocation : mockingDetails(jedis).getInvocations()) {
+            String method = invocation.getMethod().getName();
+            if (!method.equals("pipelined") && !method.equals("close")) {
+                ++roundTrips;
+            }
+        }
+        for (Invocation invocation : mockingDetails(pipeline).getInvocations()) {
+            String method = invocation.getMethod().getName();
+            if (method.equals("sync") || method.equals("syncAndReturnAll") || method.equals("exec")) {
+                ++roundTrips;
+            }
+        }
+        return roundTrips;
+    }
+
+    @Test
+    public void test_shortenURL_newMappingCostsTwoRedisRoundTrips() {
+        service.shortenURL("http://localhost:8080/shortener", "example.com/new");
+
+        int roundTrips = redisRoundTrips();
+        // One pipelined dedup lookup + one pipeline carrying both cache writes
+        assertEquals(2, roundTrips);
+        verify(pipeline).setex(startsWith("url:"), anyInt(), eq("example.com/new"));
+        verify(pipeline).setex(startsWith("hash:"), anyInt(), anyString());
+    }
+
+    @Test
+    public void test_shortenURL_dbHitRepopulatesCacheInOneRoundTrip() {
+        URLMapping existing = new URLMapping("bX", "example.com/old", "hash");
+        when(dbRepository.findByUrlHash(anyString())).thenReturn(Optional.of(existing));
+
+        service.shortenURL("http://localhost:8080/shortener", "example.com/old");
+
+        int roundTrips = redisRoundTrips();
+        assertEquals(2, roundTrips);
+        verify(pipeline, times(2)).setex(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_shortenBatch_oneLookupOneInsertOneRoundTrip() {
+        // The first 10 URLs were shortened before
+        when(dbRepository.findByUrlHashIn(anyCollection())).thenAnswer(invocation -> {
+            List<URLMapping> existing = new ArrayList<>();
+            int i = 0;
+            for (String hash : (Collection<String>) invocation.getArgument(0)) {
+                if (i < 10) {
+                    existing.add(new URLMapping("old" + i, "example.com/" + i, hash));
+                }
+                ++i;
+            }
+            return existing;
+        });
+        Map<String, RedirectPolicy> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 50; ++i) {
+            batch.put("example.com/" + i, RedirectPolicy.DEFAULT);
+        }
+
+        Map<String, String> shortUrls = service.shortenBatch("http://localhost:8080/shortener", batch);
+
+        assertEquals(50, shortUrls.size());
+        assertTrue(shortUrls.get("example.com/3").endsWith("/old3"));
+        ArgumentCaptor<List<URLMapping>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(dbRepository, times(1)).findByUrlHashIn(anyCollection());
+        verify(dbRepository, times(1)).insertAll(inserted.capture());
+        verify(dbRepository, never()).save(any(URLMapping.class));
+        assertEquals(40, inserted.getValue().size());
+        // Both cache directions of all 50 mappings in a single pipeline
+        assertEquals(1, redisRoundTrips());
+        verify(pipeline, times(100)).setex(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_resolveBatch_oneMultiGetOneQueryOneBackfill() {
+        String shortUrl = service.shortenURL("http://localhost:8080/shortener", "example.com/local");
+        String localKey = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+        clearInvocations(jedis, pipeline);
+        Response<List<String>> multiGet = mock(Response.class);
+        when(multiGet.get()).thenReturn(Arrays.asList("example.com/redis", null, null));
+        when(pipeline.mget(ArgumentMatchers.<String>any())).thenReturn(multiGet);
+        when(dbRepository.findByShortKeyIn(anyCollection()))
+            .thenReturn(Collections.singletonList(new URLMapping("bd", "example.com/db", "hash")));
+
+        // L1 hit, Redis hit, DB hit, missing, malformed, duplicate
+        Map<String, RedirectResponse> resolved = service.resolveBatch(
+            Arrays.asList(localKey, "bc", "bd", "be", "abc", "bc"));
+
+        assertEquals(3, resolved.size());
+        assertEquals("http://example.com/local", resolved.get(localKey).getLocation());
+        assertEquals("http://example.com/redis", resolved.get("bc").getLocation());
+        assertEquals("http://example.com/db", resolved.get("bd").getLocation());
+        verify(dbRepository, times(1)).findByShortKeyIn(Arrays.asList("bd", "be"));
+        verify(dbRepository, never()).findByShortKey(anyString());
+        verify(pipeline).setex(eq("url:bd"), anyInt(), eq("example.com/db"));
+        assertTrue(negativeCache.isKnownMissing("be"));
+        // One multi-get and one back-fill pipeline
+        assertEquals(2, redisRoundTrips());
+    }
+
+    @Test
+    public void test_getLongURLFromID_neverIssuedKeySkipsDatabase() throws Exception {
+        shortKeyFilter.start();
+        while (!shortKeyFilter.isReady()) {
+            Thread.sleep(10);
+        }
+        String issued = service.shortenURL("http://localhost:8080/shortener", "example.com/issued");
+        String issuedKey = issued.substring(issued.lastIndexOf('/') + 1);
+
+        try {
+            service.getLongURLFromID("zzzzzz");
+            fail("Expected lookup of a never-issued key to fail");
+        } catch (ShortKeyNotFoundException expected) {
+            // not found
+        }
+        verify(dbRepository, never()).findByShortKey("zzzzzz");
+        // A filter rejection is not a confirmed miss, so it is not negatively cached
+        assertFalse(negativeCache.isKnownMissing("zzzzzz"));
+
+        // Keys issued on create are added to the filter right away
+        assertTrue(shortKeyFilter.mightContain(issuedKey));
+        shortKeyFilter.close();
+    }
+
+    @Test
+    public void test_getLongURLFromID_filterMissQueriesDatabaseWhenRedisFails() throws Exception {
+        shortKeyFilter.start();
+        while (!shortKeyFilter.isReady()) {
+            Thread.sleep(10);
+        }
+        // Created by another node after the filter's last refresh, and Redis is down
+        doThrow(new JedisConnectionException("Connection refused")).when(pipeline).sync();
+        when(dbRepository.findByShortKey("zzzzzz"))
+            .thenReturn(Optional.of(new URLMapping("zzzzzz", "example.com/elsewhere", "hash")));
+
+        assertEquals("example.com/elsewhere", service.getLongURLFromID("zzzzzz"));
+        verify(dbRepository, times(1)).findByShortKey("zzzzzz");
+        shortKeyFilter.close();
+    }
+
+    @Test
+    public void test_getLongURLFromID_concurrentMissesShareOneDatabaseQuery() throws Exception {
+        int callers = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        when(dbRepository.findByShortKey("viral")).thenAnswer(invocation -> {
+            // Slow enough that every caller arrives while the first load is still in flight
+            Thread.sleep(300);
+            return Optional.of(new URLMapping("viral", "example.com/viral", "hash"));
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; ++i) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return service.getLongURLFromID("viral");
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            assertEquals("example.com/viral", result.get());
+        }
+        pool.shutdown();
+
+        verify(dbRepository, times(1)).findByShortKey("viral");
+        verify(jedis, times(1)).setex(eq("url:viral"), anyInt(), eq("example.com/viral"));
+    }
+
+    @Test
+    public void test_getLongURLFromID_repeatedUnknownKeyIsAnsweredFromNegativeCache() throws Exception {
+        String nextKey = IDConverter.createUniqueID(1000L);
+        when(dbRepository.findByShortKey(anyString())).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 5; ++i) {
+            try {
+                service.getLongURLFromID(nextKey);
+                fail("Expected lookup of an unknown key to fail");
+            } catch (ShortKeyNotFoundException expected) {
+                assertEquals(nextKey, expected.getShortKey());
+            }
+        }
+        verify(dbRepository, times(1)).findByShortKey(nextKey);
+        assertTrue(negativeCache.isKnownMissing(nextKey));
+
+        // Issuing the key drops the negative entry
+        service.shortenURL("http://localhost:8080/shortener", "example.com/later");
+        assertFalse(negativeCache.isKnownMissing(nextKey));
+        assertEquals("example.com/later", service.getLongURLFromID(nextKey));
+    }
+}